@@ -1,39 +1,54 @@
 package com.usradio.app;
 
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
+import android.util.Log;
 import android.view.View;
+import android.widget.HorizontalScrollView;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.SearchView;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
-import com.bumptech.glide.Glide;
+import com.google.android.material.appbar.MaterialToolbar;
 import com.google.android.material.card.MaterialCardView;
+import com.google.android.material.chip.Chip;
+import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.tabs.TabLayout;
 import com.usradio.app.adapter.RadioStationAdapter;
-import com.usradio.app.api.RetrofitClient;
-import com.usradio.app.model.RadioStation;
-import com.usradio.app.player.RadioPlayer;
+import com.usradio.app.adapter.StationPagingAdapter;
+import com.usradio.app.image.FaviconLoader;
+import com.usradio.app.model.Station;
+import com.usradio.app.repository.FavoritesIndex;
 import com.usradio.app.repository.RadioRepository;
+import com.usradio.app.repository.StationHealthMonitor;
+import com.usradio.app.search.StationFacetIndex;
+import com.usradio.app.task.TaskScheduler;
 import java.util.ArrayList;
 import java.util.List;
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
 
 public class MainActivity extends AppCompatActivity implements RadioStationAdapter.OnStationClickListener {
     
+    private static final String TAG = "MainActivity";
+    // Budget for the UI-thread share of one search keystroke
+    private static final long SEARCH_UI_BUDGET_NANOS = 2_000_000L;
+    private static final String FAVORITES_FILE = "favorites.json";
+    
+    private MaterialToolbar toolbar;
     private RecyclerView recyclerView;
     private RadioStationAdapter adapter;
+    private StationPagingAdapter pagingAdapter;
     private ProgressBar progressBar;
     private SearchView searchView;
     private TabLayout tabLayout;
+    private HorizontalScrollView facetScroll;
+    private ChipGroup facetChips;
     
     // Player UI
     private MaterialCardView playerCard;
@@ -43,33 +58,64 @@ public class MainActivity extends AppCompatActivity implements RadioStationAdapt
     private ImageButton btnPlayPause;
     private ImageButton btnClose;
     
-    private RadioPlayer radioPlayer;
+    // Outlives the activity across rotations, together with the player and the catalog
+    private MainViewModel viewModel;
     private RadioRepository repository;
+    private String shownIconUuid;
+    
+    private final FavoritesIndex.Listener favoritesListener = flippedUuids -> {
+        adapter.notifyFavoritesChanged(flippedUuids);
+        pagingAdapter.notifyFavoritesChanged(flippedUuids);
+    };
+    
+    private final StationHealthMonitor.Listener healthListener = flippedUuids -> {
+        adapter.notifyHealthChanged(flippedUuids);
+        pagingAdapter.notifyHealthChanged(flippedUuids);
+    };
     
-    private List<RadioStation> allStations = new ArrayList<>();
-    private List<RadioStation> favoriteStations = new ArrayList<>();
-    private boolean showingFavorites = false;
+    // Registered before onCreate returns, as the result API requires
+    private final ActivityResultLauncher<String> exportFavorites = registerForActivityResult(
+        new ActivityResultContracts.CreateDocument("application/json"), uri -> {
+            if (uri != null) {
+                viewModel.exportFavorites(uri);
+            }
+        });
+    
+    private final ActivityResultLauncher<String[]> importFavorites = registerForActivityResult(
+        new ActivityResultContracts.OpenDocument(), uri -> {
+            if (uri != null) {
+                viewModel.importFavorites(uri);
+            }
+        });
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         
+        viewModel = new ViewModelProvider(this).get(MainViewModel.class);
+        repository = viewModel.getRepository();
+        
         initViews();
+        setupToolbar();
         setupRecyclerView();
         setupPlayer();
         setupRepository();
         setupTabLayout();
         setupSearchView();
+        setupFacets();
         
         loadStations();
     }
     
     private void initViews() {
+        toolbar = findViewById(R.id.toolbar);
         recyclerView = findViewById(R.id.recyclerView);
         progressBar = findViewById(R.id.progressBar);
         searchView = findViewById(R.id.searchView);
         tabLayout = findViewById(R.id.tabLayout);
+        facetScroll = findViewById(R.id.facetScroll);
+        facetChips = findViewById(R.id.facetChips);
         
         playerCard = findViewById(R.id.playerCard);
         playerIcon = findViewById(R.id.playerIcon);
@@ -79,81 +125,143 @@ public class MainActivity extends AppCompatActivity implements RadioStationAdapt
         btnClose = findViewById(R.id.btnClose);
     }
     
+    private void setupToolbar() {
+        toolbar.inflateMenu(R.menu.main_menu);
+        toolbar.setOnMenuItemClickListener(item -> {
+            if (item.getItemId() == R.id.action_export_favorites) {
+                exportFavorites.launch(FAVORITES_FILE);
+                return true;
+            } else if (item.getItemId() == R.id.action_import_favorites) {
+                importFavorites.launch(new String[] {"application/json", "text/plain"});
+                return true;
+            }
+            return false;
+        });
+    }
+    
     private void setupRecyclerView() {
-        adapter = new RadioStationAdapter(this);
+        RadioStationAdapter.FavoriteLookup favoriteLookup = stationUuid -> repository.isFavorite(stationUuid);
+        RadioStationAdapter.HealthLookup healthLookup = stationUuid -> repository.isUnhealthy(stationUuid);
+        adapter = new RadioStationAdapter(this, favoriteLookup, healthLookup);
+        pagingAdapter = new StationPagingAdapter(this, favoriteLookup, healthLookup);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        recyclerView.setAdapter(adapter);
+        recyclerView.setAdapter(pagingAdapter);
+        recyclerView.addOnScrollListener(FaviconLoader.getInstance(this).createPreloader(recyclerView, this::stationAt));
+    }
+    
+    // Whichever adapter is showing; null for rows that are not loaded
+    private Station stationAt(int position) {
+        if (recyclerView.getAdapter() == pagingAdapter) {
+            return position < pagingAdapter.getItemCount() ? pagingAdapter.peek(position) : null;
+        }
+        List<Station> stations = adapter.getStations();
+        return position < stations.size() ? stations.get(position) : null;
+    }
+    
+    // The unfiltered catalog is paged; facet matches, favorites and search results are plain lists
+    private void showPagedCatalog() {
+        if (recyclerView.getAdapter() != pagingAdapter) {
+            recyclerView.setAdapter(pagingAdapter);
+        }
+    }
+    
+    private void showStationList(List<? extends Station> stations) {
+        if (recyclerView.getAdapter() != adapter) {
+            recyclerView.setAdapter(adapter);
+        }
+        adapter.setStations(stations);
     }
     
     private void setupPlayer() {
-        radioPlayer = new RadioPlayer(this);
-        radioPlayer.setPlayerStateListener(new RadioPlayer.PlayerStateListener() {
-            @Override
-            public void onPlayerReady() {
-                runOnUiThread(() -> {
-                    playerStatus.setText("Playing");
-                    btnPlayPause.setImageResource(android.R.drawable.ic_media_pause);
-                });
-            }
-            
-            @Override
-            public void onPlayerError(String error) {
-                runOnUiThread(() -> {
-                    playerStatus.setText("Error: " + error);
-                    Toast.makeText(MainActivity.this, "Playback error: " + error, Toast.LENGTH_SHORT).show();
-                });
-            }
-            
-            @Override
-            public void onPlaybackStateChanged(boolean isPlaying) {
-                runOnUiThread(() -> {
-                    if (isPlaying) {
-                        btnPlayPause.setImageResource(android.R.drawable.ic_media_pause);
-                        playerStatus.setText("Playing");
-                    } else {
-                        btnPlayPause.setImageResource(android.R.drawable.ic_media_play);
-                        playerStatus.setText("Paused");
-                    }
-                });
+        viewModel.getPlayerStatus().observe(this, this::showPlayerStatus);
+        viewModel.getMessages().observe(this, message -> {
+            String text = message != null ? message.consume() : null;
+            if (text != null) {
+                Toast.makeText(this, text, Toast.LENGTH_SHORT).show();
             }
         });
         
         btnPlayPause.setOnClickListener(v -> {
-            if (radioPlayer.isPlaying()) {
-                radioPlayer.pause();
+            if (viewModel.isPlaying()) {
+                viewModel.pause();
             } else {
-                radioPlayer.play();
+                viewModel.play();
             }
         });
         
-        btnClose.setOnClickListener(v -> {
-            radioPlayer.stop();
+        btnClose.setOnClickListener(v -> viewModel.stop());
+    }
+    
+    private void showPlayerStatus(MainViewModel.PlayerStatus status) {
+        if (status == null) {
             playerCard.setVisibility(View.GONE);
-        });
+            shownIconUuid = null;
+            return;
+        }
+        playerCard.setVisibility(View.VISIBLE);
+        playerStationName.setText(status.station.getName());
+        // Same request as the list row, so the already-decoded bitmap comes from the memory cache
+        if (!status.station.getStationUuid().equals(shownIconUuid)) {
+            shownIconUuid = status.station.getStationUuid();
+            FaviconLoader.getInstance(this).load(playerIcon, status.station);
+        }
+        switch (status.state) {
+            case LOADING:
+                playerStatus.setText("Loading...");
+                btnPlayPause.setImageResource(android.R.drawable.ic_media_pause);
+                break;
+            case PLAYING:
+                playerStatus.setText("Playing");
+                btnPlayPause.setImageResource(android.R.drawable.ic_media_pause);
+                break;
+            case PAUSED:
+                playerStatus.setText("Paused");
+                btnPlayPause.setImageResource(android.R.drawable.ic_media_play);
+                break;
+            case ERROR:
+                playerStatus.setText("Error: " + status.error);
+                btnPlayPause.setImageResource(android.R.drawable.ic_media_play);
+                break;
+        }
     }
     
     private void setupRepository() {
-        repository = new RadioRepository(this);
-        repository.getAllFavorites().observe(this, favorites -> {
-            favoriteStations = favorites != null ? favorites : new ArrayList<>();
-            updateFavoriteStatus();
-            if (showingFavorites) {
-                adapter.setStations(favoriteStations);
+        viewModel.getSearchController().setTimingListener(timing -> {
+            if (timing.getUiThreadNanos() > SEARCH_UI_BUDGET_NANOS) {
+                Log.w(TAG, "Search \"" + timing.query + "\" spent " + timing.getUiThreadNanos() / 1000 + " us on the UI thread; "
+                    + TaskScheduler.getInstance().getStats(TaskScheduler.Priority.UI_CRITICAL));
+            }
+        });
+        repository.getFavoritesIndex().addListener(favoritesListener);
+        repository.getHealthMonitor().addListener(healthListener);
+        viewModel.getFavorites().observe(this, favorites -> {
+            if (viewModel.isShowingFavorites() && !isSearching()) {
+                showStationList(viewModel.getFavoriteStations());
+            }
+        });
+        viewModel.getSearchResults().observe(this, results -> {
+            if (results != null && isSearching()) {
+                showStationList(results);
             }
         });
     }
     
+    private boolean isSearching() {
+        return !viewModel.getQuery().trim().isEmpty();
+    }
+    
     private void setupTabLayout() {
+        // Restores the tab before the listener is attached, so nothing is reloaded
+        TabLayout.Tab savedTab = tabLayout.getTabAt(viewModel.isShowingFavorites() ? 1 : 0);
+        if (savedTab != null) {
+            savedTab.select();
+        }
         tabLayout.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
             @Override
             public void onTabSelected(TabLayout.Tab tab) {
-                showingFavorites = tab.getPosition() == 1;
-                if (showingFavorites) {
-                    adapter.setStations(favoriteStations);
-                } else {
-                    adapter.setStations(allStations);
-                }
+                viewModel.setShowingFavorites(tab.getPosition() == 1);
                 searchView.setQuery("", false);
+                filterStations("");
             }
             
             @Override
@@ -173,118 +281,116 @@ public class MainActivity extends AppCompatActivity implements RadioStationAdapt
             
             @Override
             public boolean onQueryTextChange(String newText) {
-                filterStations(newText);
+                // The restored SearchView reports its old text again; the results are already there
+                if (!newText.equals(viewModel.getQuery())) {
+                    filterStations(newText);
+                }
                 return true;
             }
         });
     }
     
     private void filterStations(String query) {
-        List<RadioStation> sourceList = showingFavorites ? favoriteStations : allStations;
-        
-        if (query == null || query.trim().isEmpty()) {
-            adapter.setStations(sourceList);
-            return;
+        viewModel.search(query);
+        if (!isSearching()) {
+            showBrowseList();
         }
-        
-        List<RadioStation> filtered = new ArrayList<>();
-        String lowerQuery = query.toLowerCase();
-        
-        for (RadioStation station : sourceList) {
-            if (station.getName() != null && station.getName().toLowerCase().contains(lowerQuery)) {
-                filtered.add(station);
-            } else if (station.getTags() != null && station.getTags().toLowerCase().contains(lowerQuery)) {
-                filtered.add(station);
-            } else if (station.getState() != null && station.getState().toLowerCase().contains(lowerQuery)) {
-                filtered.add(station);
+    }
+    
+    // Favorites or the catalog, narrowed by the checked facets
+    private void showBrowseList() {
+        List<Station> filteredCatalog = viewModel.getFilteredCatalog().getValue();
+        if (viewModel.isShowingFavorites()) {
+            showStationList(viewModel.getFavoriteStations());
+        } else if (filteredCatalog != null) {
+            showStationList(filteredCatalog);
+        } else {
+            showPagedCatalog();
+        }
+    }
+    
+    private void setupFacets() {
+        viewModel.getFacetCounts().observe(this, this::showFacetChips);
+        viewModel.getFilteredCatalog().observe(this, filteredCatalog -> {
+            if (!isSearching()) {
+                showBrowseList();
+            }
+        });
+    }
+    
+    // Chips are reused by position; a filter change only updates their text and checked state
+    private void showFacetChips(List<StationFacetIndex.FacetCount> counts) {
+        List<StationFacetIndex.FacetCount> visible = new ArrayList<>();
+        for (StationFacetIndex.FacetCount count : counts) {
+            if (count.count > 0 || count.selected) {
+                visible.add(count);
             }
         }
-        
-        adapter.setStations(filtered);
+        facetScroll.setVisibility(visible.isEmpty() ? View.GONE : View.VISIBLE);
+        while (facetChips.getChildCount() < visible.size()) {
+            Chip chip = (Chip) getLayoutInflater().inflate(R.layout.item_facet_chip, facetChips, false);
+            chip.setOnClickListener(v -> {
+                StationFacetIndex.FacetCount count = (StationFacetIndex.FacetCount) v.getTag();
+                viewModel.toggleFacet(count.facet, count.value);
+            });
+            facetChips.addView(chip);
+        }
+        while (facetChips.getChildCount() > visible.size()) {
+            facetChips.removeViewAt(facetChips.getChildCount() - 1);
+        }
+        for (int i = 0; i < visible.size(); i++) {
+            StationFacetIndex.FacetCount count = visible.get(i);
+            Chip chip = (Chip) facetChips.getChildAt(i);
+            chip.setTag(count);
+            String label = count.facet == StationFacetIndex.Facet.BITRATE ? count.value + "+ kbps" : count.value;
+            chip.setText(label + " (" + count.count + ")");
+            chip.setChecked(count.selected);
+        }
     }
     
     private void loadStations() {
-        progressBar.setVisibility(View.VISIBLE);
+        viewModel.getPagedCatalog()
+            .observe(this, pagingData -> pagingAdapter.submitData(getLifecycle(), pagingData));
+        viewModel.isCatalogLoading().observe(this, loading ->
+            progressBar.setVisibility(Boolean.TRUE.equals(loading) ? View.VISIBLE : View.GONE));
         
-        RetrofitClient.getInstance()
-            .getRadioBrowserService()
-            .getUSAStations(1000, 0, "votes", true)
-            .enqueue(new Callback<List<RadioStation>>() {
-                @Override
-                public void onResponse(Call<List<RadioStation>> call, Response<List<RadioStation>> response) {
-                    progressBar.setVisibility(View.GONE);
-                    if (response.isSuccessful() && response.body() != null) {
-                        allStations = response.body();
-                        updateFavoriteStatus();
-                        adapter.setStations(allStations);
-                    } else {
-                        Toast.makeText(MainActivity.this, "Error loading stations", Toast.LENGTH_SHORT).show();
-                    }
-                }
-                
-                @Override
-                public void onFailure(Call<List<RadioStation>> call, Throwable t) {
-                    progressBar.setVisibility(View.GONE);
-                    Toast.makeText(MainActivity.this, "Network error: " + t.getMessage(), Toast.LENGTH_SHORT).show();
-                }
-            });
+        if (!isSearching()) {
+            filterStations("");
+        }
     }
     
-    private void updateFavoriteStatus() {
-        new Thread(() -> {
-            for (RadioStation station : allStations) {
-                boolean isFav = false;
-                for (RadioStation fav : favoriteStations) {
-                    if (fav.getStationUuid().equals(station.getStationUuid())) {
-                        isFav = true;
-                        break;
-                    }
-                }
-                station.setFavorite(isFav);
-            }
-            runOnUiThread(() -> adapter.notifyDataSetChanged());
-        }).start();
+    @Override
+    public void onStationClick(Station station) {
+        viewModel.playStation(station);
     }
     
     @Override
-    public void onStationClick(RadioStation station) {
-        playerCard.setVisibility(View.VISIBLE);
-        playerStationName.setText(station.getName());
-        playerStatus.setText("Loading...");
-        
-        if (station.getFavicon() != null && !station.getFavicon().isEmpty()) {
-            Glide.with(this)
-                .load(station.getFavicon())
-                .placeholder(android.R.drawable.ic_btn_speak_now)
-                .error(android.R.drawable.ic_btn_speak_now)
-                .into(playerIcon);
-        } else {
-            playerIcon.setImageResource(android.R.drawable.ic_btn_speak_now);
-        }
-        
-        radioPlayer.playStation(station);
+    public void onFavoriteClick(Station station) {
+        // The favorites index flips the star through favoritesListener; the toast comes as a message
+        viewModel.toggleFavorite(station);
     }
     
     @Override
-    public void onFavoriteClick(RadioStation station) {
-        station.setFavorite(!station.isFavorite());
-        
-        if (station.isFavorite()) {
-            repository.insertFavorite(station);
-            Toast.makeText(this, "Added to favorites", Toast.LENGTH_SHORT).show();
-        } else {
-            repository.deleteFavoriteById(station.getStationUuid());
-            Toast.makeText(this, "Removed from favorites", Toast.LENGTH_SHORT).show();
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // UI_HIDDEN only means the app went to the background, not that memory is short
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN && viewModel != null) {
+            viewModel.trimMemory();
         }
-        
-        adapter.updateStation(station);
+    }
+    
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Toggles still waiting for their batch are written before the process can be killed
+        repository.flushFavorites();
     }
     
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (radioPlayer != null) {
-            radioPlayer.release();
-        }
+        // The catalog stays in the view model and the player in the playback service; only this activity's listeners go
+        repository.getFavoritesIndex().removeListener(favoritesListener);
+        repository.getHealthMonitor().removeListener(healthListener);
     }
 }
@@ -0,0 +1,537 @@
+package com.usradio.app;
+
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Observer;
+import androidx.lifecycle.SavedStateHandle;
+import androidx.paging.PagingData;
+import com.usradio.app.api.RadioStationTypeAdapter;
+import com.usradio.app.model.CatalogStation;
+import com.usradio.app.model.CompactCatalog;
+import com.usradio.app.model.FacetRow;
+import com.usradio.app.model.RadioStation;
+import com.usradio.app.model.Station;
+import com.usradio.app.player.PlaybackService;
+import com.usradio.app.player.RadioPlayer;
+import com.usradio.app.repository.RadioRepository;
+import com.usradio.app.search.FacetFilter;
+import com.usradio.app.search.SearchController;
+import com.usradio.app.search.StationFacetIndex;
+import com.usradio.app.task.CancellationToken;
+import com.usradio.app.task.TaskScheduler;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+// Holds everything a rotation must not rebuild: the repository and its indices, search, the paged
+// catalog and the binding to the playback service, which owns the player. The little UI state that
+// must also survive process death (tab, query, current station) goes into the SavedStateHandle; the
+// catalog itself is already on disk.
+public class MainViewModel extends AndroidViewModel {
+    
+    private static final String KEY_SHOWING_FAVORITES = "showing_favorites";
+    private static final String KEY_QUERY = "query";
+    private static final String KEY_STATION = "station";
+    private static final String KEY_FACETS = "facets";
+    // Chips for the most common values of each facet; checked values always keep theirs
+    private static final int CHIPS_PER_FACET = 8;
+    // Paged-in rows arrive a page at a time while the list scrolls; the facets follow at most this often
+    private static final long FACET_REBUILD_DELAY_MS = 1_000;
+    // A recreated process serves a catalog this fresh from disk without asking the server
+    private static final long CATALOG_MAX_AGE_MS = TimeUnit.MINUTES.toMillis(30);
+    private static final RadioStationTypeAdapter STATION_ADAPTER = new RadioStationTypeAdapter();
+    
+    public enum PlaybackState { LOADING, PLAYING, PAUSED, ERROR }
+    
+    public static class PlayerStatus {
+        public final RadioStation station;
+        public final PlaybackState state;
+        public final String error;
+        
+        PlayerStatus(RadioStation station, PlaybackState state, String error) {
+            this.station = station;
+            this.state = state;
+            this.error = error;
+        }
+    }
+    
+    // Shown once; a rotation re-delivers the LiveData value but not the toast
+    public static class Message {
+        private final String text;
+        private boolean consumed;
+        
+        Message(String text) {
+            this.text = text;
+        }
+        
+        public synchronized String consume() {
+            if (consumed) {
+                return null;
+            }
+            consumed = true;
+            return text;
+        }
+    }
+    
+    private final SavedStateHandle savedState;
+    private final CancellationToken cancellationToken = new CancellationToken();
+    private final RadioRepository repository;
+    private final SearchController searchController;
+    // Null until the playback service is bound
+    private RadioPlayer radioPlayer;
+    // Player calls made before the service was bound; they run once it is
+    private final List<Consumer<RadioPlayer>> pendingPlayerCalls = new ArrayList<>();
+    private final LiveData<PagingData<CatalogStation>> pagedCatalog;
+    private final MutableLiveData<List<Station>> searchResults = new MutableLiveData<>();
+    private final MutableLiveData<PlayerStatus> playerStatus = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> catalogLoading = new MutableLiveData<>(true);
+    private final MutableLiveData<Message> messages = new MutableLiveData<>();
+    private final MutableLiveData<List<StationFacetIndex.FacetCount>> facetCounts = new MutableLiveData<>();
+    // Null while no facet is checked
+    private final MutableLiveData<List<Station>> filteredCatalog = new MutableLiveData<>();
+    private final Executor facetExecutor = TaskScheduler.getInstance().serial(TaskScheduler.Priority.USER_INITIATED);
+    private final Executor backupExecutor = TaskScheduler.getInstance().serial(TaskScheduler.Priority.USER_INITIATED);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private volatile CompactCatalog catalog = CompactCatalog.EMPTY;
+    private List<RadioStation> favoriteStations = new ArrayList<>();
+    // Station of the previous process, shown paused until the user presses play
+    private RadioStation restoredStation;
+    // Main thread only; chip counts are computed there, they take microseconds. The rows behind a
+    // filter are read off the main thread, and only the latest selection is published.
+    private StationFacetIndex facetIndex;
+    private FacetFilter facetFilter;
+    private List<FacetRow> facetRows;
+    private boolean facetRebuildScheduled;
+    private int selectionGeneration;
+    private final Runnable facetRebuild = this::buildFacetIndex;
+    private List<Station> unfilteredSearchResults;
+    
+    private final Observer<CompactCatalog> catalogObserver = catalog -> {
+        if (catalog == null || catalog.isEmpty()) {
+            return;
+        }
+        this.catalog = catalog;
+        catalogLoading.setValue(false);
+        searchController.updateCatalog(catalog);
+        if (!isShowingFavorites()) {
+            rerunSearch();
+        }
+    };
+    
+    // Facets cover every stored station, not just the head, so a checked chip hides nothing on disk
+    private final Observer<List<FacetRow>> facetRowsObserver = rows -> {
+        if (rows == null || rows.isEmpty()) {
+            return;
+        }
+        facetRows = rows;
+        if (!facetRebuildScheduled) {
+            facetRebuildScheduled = true;
+            // The first build is not held back
+            mainHandler.postDelayed(facetRebuild, facetIndex == null ? 0 : FACET_REBUILD_DELAY_MS);
+        }
+    };
+    
+    private final Observer<List<RadioStation>> favoritesObserver = favorites -> {
+        favoriteStations = favorites != null ? favorites : new ArrayList<>();
+        searchController.updateFavorites(favoriteStations);
+        if (isShowingFavorites()) {
+            rerunSearch();
+        }
+    };
+    
+    private final RadioPlayer.PlayerStateListener playerStateListener = new RadioPlayer.PlayerStateListener() {
+        @Override
+        public void onPlayerReady() {
+            publishStatus(PlaybackState.PLAYING, null);
+        }
+        
+        @Override
+        public void onPlayerError(String error) {
+            publishStatus(PlaybackState.ERROR, error);
+            messages.setValue(new Message("Playback error: " + error));
+        }
+        
+        @Override
+        public void onPlaybackStateChanged(boolean isPlaying) {
+            publishStatus(isPlaying ? PlaybackState.PLAYING : PlaybackState.PAUSED, null);
+        }
+        
+        @Override
+        public void onPlaybackStopped() {
+            clearPlayback();
+        }
+    };
+    
+    // Connection callbacks arrive on the main thread, like every player call
+    private final ServiceConnection serviceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder service) {
+            radioPlayer = ((PlaybackService.LocalBinder) service).getPlayer();
+            radioPlayer.setPlayerStateListener(playerStateListener);
+            reattach();
+            for (Consumer<RadioPlayer> call : pendingPlayerCalls) {
+                call.accept(radioPlayer);
+            }
+            pendingPlayerCalls.clear();
+        }
+        
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            radioPlayer = null;
+        }
+    };
+    
+    public MainViewModel(@NonNull Application application, @NonNull SavedStateHandle savedState) {
+        super(application);
+        this.savedState = savedState;
+        facetFilter = FacetFilter.fromKeys(savedState.get(KEY_FACETS));
+        repository = new RadioRepository(application, cancellationToken);
+        searchController = new SearchController(repository.getSearchIndex(), repository.getSearchEngine(),
+            (query, results) -> {
+                unfilteredSearchResults = results;
+                searchResults.setValue(applyFacets(results));
+            }, cancellationToken);
+        pagedCatalog = repository.getPagedCatalog(this);
+        repository.getCatalog().observeForever(catalogObserver);
+        repository.getFacetRows().observeForever(facetRowsObserver);
+        repository.getAllFavorites().observeForever(favoritesObserver);
+        
+        application.bindService(new Intent(application, PlaybackService.class), serviceConnection,
+            Context.BIND_AUTO_CREATE);
+        restoredStation = decodeStation(savedState.get(KEY_STATION));
+        if (restoredStation != null) {
+            playerStatus.setValue(new PlayerStatus(restoredStation, PlaybackState.PAUSED, null));
+        }
+        
+        repository.refreshCatalogIfStale(CATALOG_MAX_AGE_MS, new RadioRepository.CatalogSyncCallback() {
+            @Override
+            public void onSyncComplete(int changedRows) {
+                catalogLoading.postValue(false);
+            }
+            
+            @Override
+            public void onSyncFailed(String error) {
+                catalogLoading.postValue(false);
+                if (catalog.isEmpty()) {
+                    messages.postValue(new Message("Network error: " + error));
+                }
+            }
+        });
+    }
+    
+    public RadioRepository getRepository() {
+        return repository;
+    }
+    
+    public LiveData<PagingData<CatalogStation>> getPagedCatalog() {
+        return pagedCatalog;
+    }
+    
+    public LiveData<List<RadioStation>> getFavorites() {
+        return repository.getAllFavorites();
+    }
+    
+    // Narrowed by the checked facets
+    public List<RadioStation> getFavoriteStations() {
+        return applyFacets(favoriteStations);
+    }
+    
+    public LiveData<List<Station>> getSearchResults() {
+        return searchResults;
+    }
+    
+    public LiveData<PlayerStatus> getPlayerStatus() {
+        return playerStatus;
+    }
+    
+    public LiveData<Boolean> isCatalogLoading() {
+        return catalogLoading;
+    }
+    
+    public LiveData<Message> getMessages() {
+        return messages;
+    }
+    
+    public LiveData<List<StationFacetIndex.FacetCount>> getFacetCounts() {
+        return facetCounts;
+    }
+    
+    // Catalog stations matching the checked facets, in catalog order; null when none is checked
+    public LiveData<List<Station>> getFilteredCatalog() {
+        return filteredCatalog;
+    }
+    
+    public void toggleFacet(StationFacetIndex.Facet facet, String value) {
+        facetFilter = facetFilter.toggle(facet, value);
+        savedState.set(KEY_FACETS, facetFilter.toKeys());
+        if (unfilteredSearchResults != null) {
+            searchResults.setValue(applyFacets(unfilteredSearchResults));
+        }
+        publishFacets();
+    }
+    
+    public SearchController getSearchController() {
+        return searchController;
+    }
+    
+    public boolean isShowingFavorites() {
+        Boolean showingFavorites = savedState.get(KEY_SHOWING_FAVORITES);
+        return showingFavorites != null && showingFavorites;
+    }
+    
+    public void setShowingFavorites(boolean showingFavorites) {
+        savedState.set(KEY_SHOWING_FAVORITES, showingFavorites);
+    }
+    
+    public String getQuery() {
+        String query = savedState.get(KEY_QUERY);
+        return query != null ? query : "";
+    }
+    
+    // Empty queries cancel the running search, so stale results never replace the full list
+    public void search(String query) {
+        savedState.set(KEY_QUERY, query);
+        if (query == null || query.trim().isEmpty()) {
+            unfilteredSearchResults = null;
+            searchController.cancel();
+            return;
+        }
+        searchController.submit(query, isShowingFavorites());
+    }
+    
+    public void playStation(Station selected) {
+        RadioStation station = RadioStation.of(selected);
+        restoredStation = null;
+        savedState.set(KEY_STATION, STATION_ADAPTER.toJson(station));
+        playerStatus.setValue(new PlayerStatus(station, PlaybackState.LOADING, null));
+        withPlayer(player -> {
+            player.playStation(station);
+            prewarmLikelyNext(player, station);
+        });
+    }
+    
+    public boolean isPlaying() {
+        return radioPlayer != null && radioPlayer.isPlaying();
+    }
+    
+    public void play() {
+        if (restoredStation != null) {
+            playStation(restoredStation);
+        } else {
+            withPlayer(RadioPlayer::play);
+        }
+    }
+    
+    public void pause() {
+        withPlayer(RadioPlayer::pause);
+    }
+    
+    public void stop() {
+        clearPlayback();
+        withPlayer(RadioPlayer::stop);
+    }
+    
+    // The outcome arrives as a message
+    public void toggleFavorite(Station selected) {
+        repository.toggleFavorite(RadioStation.of(selected), favorite ->
+            messages.postValue(new Message(favorite ? "Added to favorites" : "Removed from favorites")));
+    }
+    
+    // Writes the favorites to a document the user picked; the outcome arrives as a message
+    public void exportFavorites(Uri uri) {
+        backupExecutor.execute(() -> {
+            try (OutputStream out = getApplication().getContentResolver().openOutputStream(uri)) {
+                if (out == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                int count = repository.exportFavorites(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                messages.postValue(new Message("Exported " + count + " favorites"));
+            } catch (IOException | RuntimeException e) {
+                messages.postValue(new Message("Export failed: " + e.getMessage()));
+            }
+        });
+    }
+    
+    // Merges an exported document into the favorites
+    public void importFavorites(Uri uri) {
+        backupExecutor.execute(() -> {
+            try (InputStream in = getApplication().getContentResolver().openInputStream(uri)) {
+                if (in == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                int count = repository.importFavorites(new InputStreamReader(in, StandardCharsets.UTF_8), false);
+                messages.postValue(new Message("Imported " + count + " favorites"));
+            } catch (IOException | RuntimeException e) {
+                messages.postValue(new Message("Import failed: " + e.getMessage()));
+            }
+        });
+    }
+    
+    public void trimMemory() {
+        if (radioPlayer != null) {
+            radioPlayer.trimMemory();
+        }
+        searchController.trimMemory();
+    }
+    
+    // Parsing tags is the slow part; it happens off the main thread, for the latest rows only
+    private void buildFacetIndex() {
+        facetRebuildScheduled = false;
+        List<FacetRow> rows = facetRows;
+        facetExecutor.execute(cancellationToken.guard(() -> {
+            StationFacetIndex built = StationFacetIndex.build(rows);
+            mainHandler.post(() -> {
+                if (!cancellationToken.isCancelled()) {
+                    facetIndex = built;
+                    publishFacets();
+                }
+            });
+        }));
+    }
+    
+    private void publishFacets() {
+        if (facetIndex == null) {
+            return;
+        }
+        facetCounts.setValue(facetIndex.counts(facetFilter, CHIPS_PER_FACET));
+        int generation = ++selectionGeneration;
+        if (facetFilter.isEmpty()) {
+            filteredCatalog.setValue(null);
+            return;
+        }
+        StationFacetIndex index = facetIndex;
+        FacetFilter filter = facetFilter;
+        facetExecutor.execute(cancellationToken.guard(() -> {
+            List<Station> selected = repository.getCatalogStationsSync(index.select(filter)).asList();
+            mainHandler.post(() -> {
+                if (!cancellationToken.isCancelled() && generation == selectionGeneration) {
+                    filteredCatalog.setValue(selected);
+                }
+            });
+        }));
+    }
+    
+    // Search results and favorites are not part of the catalog snapshot; they are checked one by one
+    private <T extends Station> List<T> applyFacets(List<T> stations) {
+        if (facetFilter.isEmpty()) {
+            return stations;
+        }
+        List<T> matching = new ArrayList<>();
+        for (T station : stations) {
+            if (StationFacetIndex.matches(station, facetFilter)) {
+                matching.add(station);
+            }
+        }
+        return matching;
+    }
+    
+    // The results behind the current query changed, or were lost with the previous process
+    private void rerunSearch() {
+        String query = getQuery();
+        if (!query.trim().isEmpty()) {
+            searchController.submit(query, isShowingFavorites());
+        }
+    }
+    
+    private void withPlayer(Consumer<RadioPlayer> call) {
+        if (radioPlayer != null) {
+            call.accept(radioPlayer);
+        } else {
+            pendingPlayerCalls.add(call);
+        }
+    }
+    
+    // Audio kept playing in the service while no activity was around; show it as it is, the stream
+    // is not touched
+    private void reattach() {
+        RadioStation station = radioPlayer.getCurrentStation();
+        if (station == null) {
+            return;
+        }
+        restoredStation = null;
+        savedState.set(KEY_STATION, STATION_ADAPTER.toJson(station));
+        PlaybackState state = radioPlayer.isPlaying() ? PlaybackState.PLAYING
+            : radioPlayer.isBuffering() ? PlaybackState.LOADING : PlaybackState.PAUSED;
+        playerStatus.setValue(new PlayerStatus(station, state, null));
+    }
+    
+    private void clearPlayback() {
+        restoredStation = null;
+        savedState.remove(KEY_STATION);
+        playerStatus.setValue(null);
+    }
+    
+    // Player events arrive on the main thread. Those after stop() have no station and would bring
+    // the closed player card back.
+    private void publishStatus(PlaybackState state, String error) {
+        RadioStation station = radioPlayer.getCurrentStation();
+        if (station != null) {
+            playerStatus.setValue(new PlayerStatus(station, state, error));
+        }
+    }
+    
+    // Neighbouring favorites and recently played stations are the likeliest next taps
+    private void prewarmLikelyNext(RadioPlayer player, RadioStation station) {
+        List<RadioStation> candidates = new ArrayList<>();
+        for (int i = 0; i < favoriteStations.size(); i++) {
+            if (favoriteStations.get(i).getStationUuid().equals(station.getStationUuid())) {
+                if (i + 1 < favoriteStations.size()) {
+                    candidates.add(favoriteStations.get(i + 1));
+                }
+                if (i > 0) {
+                    candidates.add(favoriteStations.get(i - 1));
+                }
+                break;
+            }
+        }
+        candidates.addAll(player.getRecentStations());
+        player.prewarm(candidates);
+    }
+    
+    private static RadioStation decodeStation(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return STATION_ADAPTER.fromJson(json);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    @Override
+    protected void onCleared() {
+        cancellationToken.cancel();
+        repository.getCatalog().removeObserver(catalogObserver);
+        repository.getFacetRows().removeObserver(facetRowsObserver);
+        mainHandler.removeCallbacks(facetRebuild);
+        repository.getAllFavorites().removeObserver(favoritesObserver);
+        repository.flushFavorites();
+        // The service keeps playing; it stops itself once playback has stopped and nobody is bound
+        pendingPlayerCalls.clear();
+        if (radioPlayer != null) {
+            radioPlayer.setPlayerStateListener(null);
+            radioPlayer = null;
+        }
+        getApplication().unbindService(serviceConnection);
+    }
+}
@@ -0,0 +1,16 @@
+package com.usradio.app;
+
+import android.app.Application;
+import com.usradio.app.api.RetrofitClient;
+import com.usradio.app.task.TaskScheduler;
+
+public class RadioApplication extends Application {
+    
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        RetrofitClient.init(this);
+        TaskScheduler.getInstance().executor(TaskScheduler.Priority.BACKGROUND)
+            .execute(() -> RetrofitClient.getInstance().refreshMirrors());
+    }
+}
@@ -7,68 +7,160 @@ import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
-import com.bumptech.glide.Glide;
-import com.bumptech.glide.load.engine.DiskCacheStrategy;
 import com.usradio.app.R;
-import com.usradio.app.model.RadioStation;
+import com.usradio.app.image.FaviconLoader;
+import com.usradio.app.model.Station;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 public class RadioStationAdapter extends RecyclerView.Adapter<RadioStationAdapter.ViewHolder> {
     
-    private List<RadioStation> stations = new ArrayList<>();
+    // Partial rebinds that only touch the favorite star or the health badge
+    static final Object PAYLOAD_FAVORITE = new Object();
+    static final Object PAYLOAD_HEALTH = new Object();
+    
+    private static final DiffUtil.ItemCallback<Station> DIFF_CALLBACK = new DiffUtil.ItemCallback<Station>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Station oldItem, @NonNull Station newItem) {
+            return oldItem.getStationUuid().equals(newItem.getStationUuid());
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull Station oldItem, @NonNull Station newItem) {
+            return oldItem.hasSameContent(newItem);
+        }
+    };
+    
+    private final AsyncListDiffer<Station> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final Map<String, Integer> positionByUuid = new HashMap<>();
     private OnStationClickListener listener;
+    private final FavoriteLookup favoriteLookup;
+    private final HealthLookup healthLookup;
     
     public interface OnStationClickListener {
-        void onStationClick(RadioStation station);
-        void onFavoriteClick(RadioStation station);
+        void onStationClick(Station station);
+        void onFavoriteClick(Station station);
+    }
+    
+    // Favorite state is looked up at bind time instead of being copied into every station
+    public interface FavoriteLookup {
+        boolean isFavorite(String stationUuid);
     }
     
-    public RadioStationAdapter(OnStationClickListener listener) {
+    public interface HealthLookup {
+        boolean isUnhealthy(String stationUuid);
+    }
+    
+    public RadioStationAdapter(OnStationClickListener listener, FavoriteLookup favoriteLookup, HealthLookup healthLookup) {
         this.listener = listener;
+        this.favoriteLookup = favoriteLookup;
+        this.healthLookup = healthLookup;
+        setHasStableIds(true);
+        differ.addListListener((previousList, currentList) -> {
+            positionByUuid.clear();
+            for (int i = 0; i < currentList.size(); i++) {
+                positionByUuid.put(currentList.get(i).getStationUuid(), i);
+            }
+        });
     }
     
-    public void setStations(List<RadioStation> stations) {
-        this.stations = stations != null ? stations : new ArrayList<>();
-        notifyDataSetChanged();
+    // Diffed against the current list on a background thread; only changed rows are rebound
+    public void setStations(List<? extends Station> stations) {
+        differ.submitList(stations != null ? new ArrayList<>(stations) : null);
+    }
+    
+    public List<Station> getStations() {
+        return differ.getCurrentList();
+    }
+    
+    public void updateStation(Station station) {
+        notifyFavoritesChanged(Collections.singleton(station.getStationUuid()));
+    }
+    
+    // Rebinds just the stars of the rows whose favorite state flipped
+    public void notifyFavoritesChanged(Collection<String> stationUuids) {
+        notifyRows(stationUuids, PAYLOAD_FAVORITE);
+    }
+    
+    public void notifyHealthChanged(Collection<String> stationUuids) {
+        notifyRows(stationUuids, PAYLOAD_HEALTH);
+    }
+    
+    private void notifyRows(Collection<String> stationUuids, Object payload) {
+        for (String uuid : stationUuids) {
+            Integer position = positionByUuid.get(uuid);
+            if (position != null) {
+                notifyItemChanged(position, payload);
+            }
+        }
+    }
+    
+    @Override
+    public long getItemId(int position) {
+        return stableIdOf(differ.getCurrentList().get(position).getStationUuid());
     }
     
-    public void updateStation(RadioStation station) {
-        for (int i = 0; i < stations.size(); i++) {
-            if (stations.get(i).getStationUuid().equals(station.getStationUuid())) {
-                stations.set(i, station);
-                notifyItemChanged(i);
-                break;
+    // Derived from the UUID itself, so nothing has to be remembered per station. Radio Browser UUIDs
+    // fold their two halves together; anything else falls back to a 64-bit FNV-1a hash.
+    static long stableIdOf(String stationUuid) {
+        if (stationUuid == null) {
+            return RecyclerView.NO_ID;
+        }
+        try {
+            UUID uuid = UUID.fromString(stationUuid);
+            return uuid.getMostSignificantBits() ^ uuid.getLeastSignificantBits();
+        } catch (IllegalArgumentException e) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < stationUuid.length(); i++) {
+                hash ^= stationUuid.charAt(i);
+                hash *= 0x100000001b3L;
             }
+            return hash;
         }
     }
     
     @NonNull
     @Override
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext())
-            .inflate(R.layout.item_radio_station, parent, false);
-        return new ViewHolder(view);
+        return ViewHolder.create(parent);
     }
     
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        RadioStation station = stations.get(position);
-        holder.bind(station);
+        Station station = differ.getCurrentList().get(position);
+        holder.bind(station, favoriteLookup.isFavorite(station.getStationUuid()),
+            healthLookup.isUnhealthy(station.getStationUuid()), listener);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            super.onBindViewHolder(holder, position, payloads);
+            return;
+        }
+        holder.bindPartial(differ.getCurrentList().get(position).getStationUuid(), payloads, favoriteLookup, healthLookup);
     }
     
     @Override
     public int getItemCount() {
-        return stations.size();
+        return differ.getCurrentList().size();
     }
     
-    class ViewHolder extends RecyclerView.ViewHolder {
+    static class ViewHolder extends RecyclerView.ViewHolder {
         ImageView imgLogo;
         TextView txtName;
         TextView txtState;
         TextView txtTags;
         TextView txtBitrate;
+        TextView txtHealthBadge;
         ImageButton btnFavorite;
         
         ViewHolder(View itemView) {
@@ -78,10 +170,17 @@ public class RadioStationAdapter extends RecyclerView.Adapter<RadioStationAdapte
             txtState = itemView.findViewById(R.id.txtStationState);
             txtTags = itemView.findViewById(R.id.txtStationTags);
             txtBitrate = itemView.findViewById(R.id.txtStationBitrate);
+            txtHealthBadge = itemView.findViewById(R.id.txtHealthBadge);
             btnFavorite = itemView.findViewById(R.id.btnFavorite);
         }
         
-        void bind(RadioStation station) {
+        static ViewHolder create(ViewGroup parent) {
+            View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_radio_station, parent, false);
+            return new ViewHolder(view);
+        }
+        
+        void bind(Station station, boolean favorite, boolean unhealthy, OnStationClickListener listener) {
             txtName.setText(station.getName() != null ? station.getName() : "Unknown Station");
             
             String stateInfo = station.getState() != null && !station.getState().isEmpty() 
@@ -103,23 +202,10 @@ public class RadioStationAdapter extends RecyclerView.Adapter<RadioStationAdapte
             txtBitrate.setText(bitrateInfo);
             
             // Load favicon/logo
-            if (station.getFavicon() != null && !station.getFavicon().isEmpty()) {
-                Glide.with(itemView.getContext())
-                    .load(station.getFavicon())
-                    .diskCacheStrategy(DiskCacheStrategy.ALL)
-                    .placeholder(android.R.drawable.ic_btn_speak_now)
-                    .error(android.R.drawable.ic_btn_speak_now)
-                    .into(imgLogo);
-            } else {
-                imgLogo.setImageResource(android.R.drawable.ic_btn_speak_now);
-            }
+            FaviconLoader.getInstance(itemView.getContext()).load(imgLogo, station);
             
-            // Set favorite icon
-            if (station.isFavorite()) {
-                btnFavorite.setImageResource(android.R.drawable.btn_star_big_on);
-            } else {
-                btnFavorite.setImageResource(android.R.drawable.btn_star_big_off);
-            }
+            bindFavorite(favorite);
+            bindHealth(unhealthy);
             
             // Click listeners
             itemView.setOnClickListener(v -> {
@@ -134,5 +220,27 @@ public class RadioStationAdapter extends RecyclerView.Adapter<RadioStationAdapte
                 }
             });
         }
+        
+        // Applies PAYLOAD_FAVORITE / PAYLOAD_HEALTH rebinds
+        void bindPartial(String stationUuid, List<Object> payloads, FavoriteLookup favoriteLookup, HealthLookup healthLookup) {
+            if (payloads.contains(PAYLOAD_FAVORITE)) {
+                bindFavorite(favoriteLookup.isFavorite(stationUuid));
+            }
+            if (payloads.contains(PAYLOAD_HEALTH)) {
+                bindHealth(healthLookup.isUnhealthy(stationUuid));
+            }
+        }
+        
+        void bindHealth(boolean unhealthy) {
+            txtHealthBadge.setVisibility(unhealthy ? View.VISIBLE : View.GONE);
+        }
+        
+        void bindFavorite(boolean favorite) {
+            if (favorite) {
+                btnFavorite.setImageResource(android.R.drawable.btn_star_big_on);
+            } else {
+                btnFavorite.setImageResource(android.R.drawable.btn_star_big_off);
+            }
+        }
     }
 }
@@ -0,0 +1,83 @@
+package com.usradio.app.adapter;
+
+import android.view.ViewGroup;
+import androidx.annotation.NonNull;
+import androidx.paging.PagingDataAdapter;
+import androidx.recyclerview.widget.DiffUtil;
+import com.usradio.app.model.CatalogStation;
+import java.util.Collection;
+import java.util.List;
+
+public class StationPagingAdapter extends PagingDataAdapter<CatalogStation, RadioStationAdapter.ViewHolder> {
+    
+    private static final DiffUtil.ItemCallback<CatalogStation> DIFF_CALLBACK = new DiffUtil.ItemCallback<CatalogStation>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull CatalogStation oldItem, @NonNull CatalogStation newItem) {
+            return oldItem.getStationUuid().equals(newItem.getStationUuid());
+        }
+        
+        @Override
+        public boolean areContentsTheSame(@NonNull CatalogStation oldItem, @NonNull CatalogStation newItem) {
+            return oldItem.hasSameRow(newItem);
+        }
+    };
+    
+    private final RadioStationAdapter.OnStationClickListener listener;
+    private final RadioStationAdapter.FavoriteLookup favoriteLookup;
+    private final RadioStationAdapter.HealthLookup healthLookup;
+    
+    public StationPagingAdapter(RadioStationAdapter.OnStationClickListener listener,
+                                RadioStationAdapter.FavoriteLookup favoriteLookup,
+                                RadioStationAdapter.HealthLookup healthLookup) {
+        super(DIFF_CALLBACK);
+        this.listener = listener;
+        this.favoriteLookup = favoriteLookup;
+        this.healthLookup = healthLookup;
+    }
+    
+    public void notifyFavoritesChanged(Collection<String> stationUuids) {
+        notifyRows(stationUuids, RadioStationAdapter.PAYLOAD_FAVORITE);
+    }
+    
+    public void notifyHealthChanged(Collection<String> stationUuids) {
+        notifyRows(stationUuids, RadioStationAdapter.PAYLOAD_HEALTH);
+    }
+    
+    // Only the loaded window is scanned; rows outside it pick up the state when they bind
+    private void notifyRows(Collection<String> stationUuids, Object payload) {
+        List<CatalogStation> loaded = snapshot();
+        for (int i = 0; i < loaded.size(); i++) {
+            CatalogStation station = loaded.get(i);
+            if (station != null && stationUuids.contains(station.getStationUuid())) {
+                notifyItemChanged(i, payload);
+            }
+        }
+    }
+    
+    @NonNull
+    @Override
+    public RadioStationAdapter.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        return RadioStationAdapter.ViewHolder.create(parent);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull RadioStationAdapter.ViewHolder holder, int position) {
+        // Rows beyond the loaded window are null until their page arrives
+        CatalogStation station = getItem(position);
+        if (station == null) {
+            return;
+        }
+        holder.bind(station, favoriteLookup.isFavorite(station.getStationUuid()),
+            healthLookup.isUnhealthy(station.getStationUuid()), listener);
+    }
+    
+    @Override
+    public void onBindViewHolder(@NonNull RadioStationAdapter.ViewHolder holder, int position, @NonNull List<Object> payloads) {
+        CatalogStation station = payloads.isEmpty() ? null : peek(position);
+        if (station != null) {
+            holder.bindPartial(station.getStationUuid(), payloads, favoriteLookup, healthLookup);
+        } else {
+            super.onBindViewHolder(holder, position, payloads);
+        }
+    }
+}
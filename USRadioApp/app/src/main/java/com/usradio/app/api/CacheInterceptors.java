@@ -0,0 +1,78 @@
+package com.usradio.app.api;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.CacheControl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+final class CacheInterceptors {
+    
+    private static final String CATALOG_PATH_PREFIX = "/json/stations/";
+    
+    private CacheInterceptors() {}
+    
+    // Network interceptor: gives catalog responses a cache lifetime when the server sends none.
+    // ETag / Last-Modified are left untouched so expired entries are revalidated with a conditional request.
+    static Interceptor forceCatalogMaxAge(int maxAgeSeconds) {
+        return chain -> {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+            if (!"GET".equals(request.method())
+                || !request.url().encodedPath().startsWith(CATALOG_PATH_PREFIX)
+                || !response.isSuccessful()
+                || response.cacheControl().maxAgeSeconds() > 0) {
+                return response;
+            }
+            return response.newBuilder()
+                .removeHeader("Pragma")
+                .header("Cache-Control", new CacheControl.Builder()
+                    .maxAge(maxAgeSeconds, TimeUnit.SECONDS)
+                    .build()
+                    .toString())
+                .build();
+        };
+    }
+    
+    // Application interceptor: with no network, or when the network fails, answer from the cache if possible
+    static Interceptor offlineFallback(Context context, int maxStaleSeconds) {
+        Context appContext = context.getApplicationContext();
+        CacheControl offline = new CacheControl.Builder()
+            .onlyIfCached()
+            .maxStale(maxStaleSeconds, TimeUnit.SECONDS)
+            .build();
+        return chain -> {
+            Request request = chain.request();
+            if (!"GET".equals(request.method())) {
+                return chain.proceed(request);
+            }
+            if (!isOnline(appContext)) {
+                return chain.proceed(request.newBuilder().cacheControl(offline).build());
+            }
+            try {
+                return chain.proceed(request);
+            } catch (IOException e) {
+                Response cached = chain.proceed(request.newBuilder().cacheControl(offline).build());
+                if (cached.code() == 504) {
+                    // Nothing usable in the cache
+                    cached.close();
+                    throw e;
+                }
+                return cached;
+            }
+        };
+    }
+    
+    private static boolean isOnline(Context context) {
+        ConnectivityManager connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null) {
+            return true;
+        }
+        NetworkCapabilities capabilities = connectivity.getNetworkCapabilities(connectivity.getActiveNetwork());
+        return capabilities != null && capabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET);
+    }
+}
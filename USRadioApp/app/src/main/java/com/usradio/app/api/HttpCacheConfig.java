@@ -0,0 +1,30 @@
+package com.usradio.app.api;
+
+import android.content.Context;
+import java.io.File;
+
+public class HttpCacheConfig {
+    
+    public final File directory;
+    public final long maxSizeBytes;
+    // Freshness forced onto catalog and search responses when the server does not send its own
+    public final int catalogMaxAgeSeconds;
+    // How old a cached response may be when it is served without a network
+    public final int offlineMaxStaleSeconds;
+    
+    public HttpCacheConfig(File directory, long maxSizeBytes, int catalogMaxAgeSeconds, int offlineMaxStaleSeconds) {
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+        this.catalogMaxAgeSeconds = catalogMaxAgeSeconds;
+        this.offlineMaxStaleSeconds = offlineMaxStaleSeconds;
+    }
+    
+    public static HttpCacheConfig defaults(Context context) {
+        return new HttpCacheConfig(
+            new File(context.getCacheDir(), "http"),
+            20L * 1024 * 1024,
+            15 * 60,
+            7 * 24 * 60 * 60
+        );
+    }
+}
@@ -0,0 +1,75 @@
+package com.usradio.app.api;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Sends each API request to the pinned mirror and retries on the next best one when it fails
+public class MirrorFailoverInterceptor implements Interceptor {
+    
+    private static final int MAX_ATTEMPTS = 3;
+    
+    private final MirrorPool pool;
+    
+    public MirrorFailoverInterceptor(MirrorPool pool) {
+        this.pool = pool;
+    }
+    
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request original = chain.request();
+        // Cache entries are keyed by mirror host; an offline lookup checks every mirror's copy
+        int maxAttempts = original.cacheControl().onlyIfCached() ? Integer.MAX_VALUE : MAX_ATTEMPTS;
+        List<HttpUrl> mirrors = pool.failoverOrder(maxAttempts);
+        IOException lastError = null;
+        
+        for (int attempt = 0; attempt < mirrors.size(); attempt++) {
+            HttpUrl mirror = mirrors.get(attempt);
+            boolean lastAttempt = attempt == mirrors.size() - 1;
+            Request request = original.newBuilder()
+                .url(original.url().newBuilder()
+                    .scheme(mirror.scheme())
+                    .host(mirror.host())
+                    .port(mirror.port())
+                    .build())
+                .build();
+            
+            long start = System.nanoTime();
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                if (chain.call().isCanceled()) {
+                    throw e;
+                }
+                pool.reportFailure(mirror);
+                lastError = e;
+                continue;
+            }
+            
+            if (response.networkResponse() == null) {
+                // Served (or refused) by the cache; says nothing about the mirror's health
+                if (response.code() == 504 && !lastAttempt) {
+                    response.close();
+                    continue;
+                }
+                return response;
+            }
+            if (response.code() >= 500) {
+                pool.reportFailure(mirror);
+                if (lastAttempt) {
+                    return response;
+                }
+                response.close();
+                continue;
+            }
+            pool.reportSuccess(mirror, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return response;
+        }
+        throw lastError != null ? lastError : new IOException("No radio-browser mirror available");
+    }
+}
@@ -0,0 +1,216 @@
+package com.usradio.app.api;
+
+import android.content.SharedPreferences;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+// Ranks radio-browser mirrors by measured latency and error rate, and pins the best one
+public class MirrorPool {
+    
+    public static final List<HttpUrl> DEFAULT_MIRRORS = Collections.unmodifiableList(Arrays.asList(
+        HttpUrl.get("https://de1.api.radio-browser.info/"),
+        HttpUrl.get("https://de2.api.radio-browser.info/"),
+        HttpUrl.get("https://nl1.api.radio-browser.info/"),
+        HttpUrl.get("https://at1.api.radio-browser.info/"),
+        HttpUrl.get("https://fi1.api.radio-browser.info/")
+    ));
+    
+    private static final String PROBE_PATH = "json/stats";
+    private static final long PROBE_TIMEOUT_MS = 3000;
+    private static final double UNKNOWN_LATENCY_MS = 1000;
+    // Weight of the newest sample in the moving averages
+    private static final double SMOOTHING = 0.3;
+    static final long FAILURE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(30);
+    // The HTTP cache is keyed by mirror host, so every new pin starts from an empty cache. A probe
+    // only moves a healthy pin when the other mirror scores at most this fraction of it.
+    static final double REPIN_MARGIN = 0.7;
+    private static final String KEY_PINNED = "pinned";
+    private static final String KEY_PROBED_AT = "probed_at";
+    private static final String KEY_STATS_PREFIX = "stats:";
+    
+    private final List<HttpUrl> mirrors;
+    private final OkHttpClient probeClient;
+    private final SharedPreferences preferences;
+    private final LongSupplier nanoClock;
+    private final Map<HttpUrl, MirrorStats> stats = new HashMap<>();
+    private HttpUrl pinned;
+    
+    static class MirrorStats {
+        double latencyMs = UNKNOWN_LATENCY_MS;
+        double errorRate;
+        long lastFailureNanos = Long.MIN_VALUE;
+        
+        double score(long now) {
+            double score = latencyMs * (1 + 3 * errorRate);
+            if (lastFailureNanos != Long.MIN_VALUE && now - lastFailureNanos < FAILURE_COOLDOWN_NANOS) {
+                score += 10_000;
+            }
+            return score;
+        }
+    }
+    
+    // preferences may be null, in which case nothing is persisted (used by tests)
+    public MirrorPool(List<HttpUrl> mirrors, OkHttpClient client, SharedPreferences preferences) {
+        this(mirrors, client, preferences, System::nanoTime);
+    }
+    
+    MirrorPool(List<HttpUrl> mirrors, OkHttpClient client, SharedPreferences preferences, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.mirrors = new ArrayList<>(mirrors);
+        this.probeClient = client.newBuilder()
+            .callTimeout(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+            .build();
+        this.preferences = preferences;
+        for (HttpUrl mirror : mirrors) {
+            stats.put(mirror, new MirrorStats());
+        }
+        restore();
+        if (pinned == null) {
+            pinned = this.mirrors.get(0);
+        }
+    }
+    
+    public synchronized HttpUrl getPinned() {
+        return pinned;
+    }
+    
+    // Mirrors to try for one request: the pinned one first, then the rest by score
+    public synchronized List<HttpUrl> failoverOrder(int maxAttempts) {
+        List<HttpUrl> order = ranked();
+        order.remove(pinned);
+        order.add(0, pinned);
+        return new ArrayList<>(order.subList(0, Math.min(maxAttempts, order.size())));
+    }
+    
+    public synchronized void reportSuccess(HttpUrl mirror, long latencyMs) {
+        MirrorStats mirrorStats = stats.get(mirror);
+        if (mirrorStats == null) {
+            return;
+        }
+        mirrorStats.latencyMs = mirrorStats.latencyMs + SMOOTHING * (latencyMs - mirrorStats.latencyMs);
+        mirrorStats.errorRate = mirrorStats.errorRate * (1 - SMOOTHING);
+    }
+    
+    public synchronized void reportFailure(HttpUrl mirror) {
+        MirrorStats mirrorStats = stats.get(mirror);
+        if (mirrorStats == null) {
+            return;
+        }
+        mirrorStats.errorRate = mirrorStats.errorRate + SMOOTHING * (1 - mirrorStats.errorRate);
+        mirrorStats.lastFailureNanos = nanoClock.getAsLong();
+        if (mirror.equals(pinned)) {
+            pinned = ranked().get(0);
+            persist();
+        }
+    }
+    
+    // Re-probes only when the persisted ranking is older than maxAgeMs
+    public void probeIfStale(long maxAgeMs) throws InterruptedException {
+        if (preferences != null && System.currentTimeMillis() - preferences.getLong(KEY_PROBED_AT, 0) < maxAgeMs) {
+            return;
+        }
+        probeAll();
+    }
+    
+    // Probes every mirror concurrently, then pins the fastest healthy one. Blocks up to the probe timeout.
+    public void probeAll() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(mirrors.size());
+        for (HttpUrl mirror : mirrors) {
+            long start = System.nanoTime();
+            Request request = new Request.Builder()
+                .url(mirror.resolve(PROBE_PATH))
+                .header("Cache-Control", "no-cache")
+                .build();
+            probeClient.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    boolean ok = response.isSuccessful();
+                    response.close();
+                    if (ok) {
+                        reportSuccess(mirror, latencyMs);
+                    } else {
+                        reportFailure(mirror);
+                    }
+                    done.countDown();
+                }
+                
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    reportFailure(mirror);
+                    done.countDown();
+                }
+            });
+        }
+        done.await(PROBE_TIMEOUT_MS * 2, TimeUnit.MILLISECONDS);
+        
+        synchronized (this) {
+            HttpUrl best = ranked().get(0);
+            long now = nanoClock.getAsLong();
+            if (stats.get(best).score(now) < REPIN_MARGIN * stats.get(pinned).score(now)) {
+                pinned = best;
+            }
+            persist();
+            if (preferences != null) {
+                preferences.edit().putLong(KEY_PROBED_AT, System.currentTimeMillis()).apply();
+            }
+        }
+    }
+    
+    private List<HttpUrl> ranked() {
+        long now = nanoClock.getAsLong();
+        List<HttpUrl> order = new ArrayList<>(mirrors);
+        Collections.sort(order, (a, b) -> Double.compare(stats.get(a).score(now), stats.get(b).score(now)));
+        return order;
+    }
+    
+    private void restore() {
+        if (preferences == null) {
+            return;
+        }
+        for (HttpUrl mirror : mirrors) {
+            String saved = preferences.getString(KEY_STATS_PREFIX + mirror, null);
+            if (saved == null) {
+                continue;
+            }
+            String[] parts = saved.split(";");
+            try {
+                MirrorStats mirrorStats = stats.get(mirror);
+                mirrorStats.latencyMs = Double.parseDouble(parts[0]);
+                mirrorStats.errorRate = Double.parseDouble(parts[1]);
+            } catch (RuntimeException e) {
+                // Ignore a corrupt entry; the mirror starts from defaults
+            }
+        }
+        HttpUrl saved = HttpUrl.parse(preferences.getString(KEY_PINNED, ""));
+        if (saved != null && mirrors.contains(saved)) {
+            pinned = saved;
+        }
+    }
+    
+    private void persist() {
+        if (preferences == null) {
+            return;
+        }
+        SharedPreferences.Editor editor = preferences.edit();
+        editor.putString(KEY_PINNED, pinned.toString());
+        for (Map.Entry<HttpUrl, MirrorStats> entry : stats.entrySet()) {
+            editor.putString(KEY_STATS_PREFIX + entry.getKey(), entry.getValue().latencyMs + ";" + entry.getValue().errorRate);
+        }
+        editor.apply();
+    }
+}
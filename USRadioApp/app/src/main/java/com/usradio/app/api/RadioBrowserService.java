@@ -2,9 +2,11 @@ package com.usradio.app.api;
 
 import com.usradio.app.model.RadioStation;
 import java.util.List;
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
 import retrofit2.http.Query;
+import retrofit2.http.Streaming;
 
 public interface RadioBrowserService {
     
@@ -16,6 +18,16 @@ public interface RadioBrowserService {
         @Query("reverse") boolean reverse
     );
     
+    // Same listing as getUSAStations, left undecoded so it can be parsed while downloading
+    @Streaming
+    @GET("json/stations/bycountry/USA")
+    Call<ResponseBody> streamUSAStations(
+        @Query("limit") int limit,
+        @Query("offset") int offset,
+        @Query("order") String order,
+        @Query("reverse") boolean reverse
+    );
+    
     @GET("json/stations/search")
     Call<List<RadioStation>> searchStations(
         @Query("name") String name,
@@ -0,0 +1,108 @@
+package com.usradio.app.api;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.usradio.app.model.RadioStation;
+import java.io.IOException;
+
+// Hand-written mapping for RadioStation so decoding never goes through reflection
+public class RadioStationTypeAdapter extends TypeAdapter<RadioStation> {
+    
+    @Override
+    public void write(JsonWriter out, RadioStation station) throws IOException {
+        if (station == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("stationuuid").value(station.getStationUuid());
+        out.name("name").value(station.getName());
+        out.name("url").value(station.getUrl());
+        out.name("url_resolved").value(station.getUrlResolved());
+        out.name("homepage").value(station.getHomepage());
+        out.name("favicon").value(station.getFavicon());
+        out.name("tags").value(station.getTags());
+        out.name("country").value(station.getCountry());
+        out.name("state").value(station.getState());
+        out.name("language").value(station.getLanguage());
+        out.name("votes").value(station.getVotes());
+        out.name("codec").value(station.getCodec());
+        out.name("bitrate").value(station.getBitrate());
+        out.endObject();
+    }
+    
+    @Override
+    public RadioStation read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        
+        RadioStation station = new RadioStation();
+        in.beginObject();
+        while (in.hasNext()) {
+            String field = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (field) {
+                case "stationuuid":
+                    station.setStationUuid(in.nextString());
+                    break;
+                case "name":
+                    station.setName(in.nextString());
+                    break;
+                case "url":
+                    station.setUrl(in.nextString());
+                    break;
+                case "url_resolved":
+                    station.setUrlResolved(in.nextString());
+                    break;
+                case "homepage":
+                    station.setHomepage(in.nextString());
+                    break;
+                case "favicon":
+                    station.setFavicon(in.nextString());
+                    break;
+                case "tags":
+                    station.setTags(in.nextString());
+                    break;
+                case "country":
+                    station.setCountry(in.nextString());
+                    break;
+                case "state":
+                    station.setState(in.nextString());
+                    break;
+                case "language":
+                    station.setLanguage(in.nextString());
+                    break;
+                case "votes":
+                    station.setVotes(nextInt(in));
+                    break;
+                case "codec":
+                    station.setCodec(in.nextString());
+                    break;
+                case "bitrate":
+                    station.setBitrate(nextInt(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return station;
+    }
+    
+    private static int nextInt(JsonReader in) throws IOException {
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException e) {
+            in.skipValue();
+            return 0;
+        }
+    }
+}
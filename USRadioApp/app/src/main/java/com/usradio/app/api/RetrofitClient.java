@@ -1,5 +1,12 @@
 package com.usradio.app.api;
 
+import android.content.Context;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.usradio.app.BuildConfig;
+import com.usradio.app.model.RadioStation;
+import com.usradio.app.network.NetworkStack;
+import okhttp3.Cache;
 import okhttp3.OkHttpClient;
 import okhttp3.logging.HttpLoggingInterceptor;
 import retrofit2.Retrofit;
@@ -8,32 +15,70 @@ import java.util.concurrent.TimeUnit;
 
 public class RetrofitClient {
     
+    // Requests are re-targeted to the pinned mirror by MirrorFailoverInterceptor
     private static final String BASE_URL = "https://de1.api.radio-browser.info/";
+    private static final long MIRROR_PROBE_INTERVAL_MS = TimeUnit.HOURS.toMillis(6);
     private static RetrofitClient instance;
     private final RadioBrowserService radioBrowserService;
+    private final MirrorPool mirrorPool;
     
-    private RetrofitClient() {
-        HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
+    private RetrofitClient(Context context, HttpCacheConfig cacheConfig) {
+        NetworkStack networkStack = NetworkStack.getInstance();
+        OkHttpClient.Builder builder = networkStack.getApiClient().newBuilder();
         
-        OkHttpClient client = new OkHttpClient.Builder()
-            .addInterceptor(loggingInterceptor)
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .build();
+        if (cacheConfig != null) {
+            builder.cache(new Cache(cacheConfig.directory, cacheConfig.maxSizeBytes))
+                .addInterceptor(CacheInterceptors.offlineFallback(context, cacheConfig.offlineMaxStaleSeconds))
+                .addNetworkInterceptor(CacheInterceptors.forceCatalogMaxAge(cacheConfig.catalogMaxAgeSeconds));
+        }
+        
+        // Runs before OkHttp's cache, since a network interceptor cannot change the host of an open
+        // connection, so cache entries are keyed by mirror. A re-pin starts from an empty cache; the
+        // pool keeps its pin unless another mirror is clearly better, and offline lookups try them all.
+        mirrorPool = new MirrorPool(
+            MirrorPool.DEFAULT_MIRRORS,
+            networkStack.getBaseClient(),
+            context != null ? context.getSharedPreferences("mirror_pool", Context.MODE_PRIVATE) : null
+        );
+        builder.addInterceptor(new MirrorFailoverInterceptor(mirrorPool));
+        
+        // Request logging stays out of release builds
+        if (BuildConfig.DEBUG) {
+            HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
+            loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BASIC);
+            builder.addInterceptor(loggingInterceptor);
+        }
+        
+        OkHttpClient client = builder.build();
+        
+        Gson gson = new GsonBuilder()
+            .registerTypeAdapter(RadioStation.class, new RadioStationTypeAdapter())
+            .create();
         
         Retrofit retrofit = new Retrofit.Builder()
             .baseUrl(BASE_URL)
             .client(client)
-            .addConverterFactory(GsonConverterFactory.create())
+            .addConverterFactory(StationListConverterFactory.create())
+            .addConverterFactory(GsonConverterFactory.create(gson))
             .build();
         
         radioBrowserService = retrofit.create(RadioBrowserService.class);
     }
     
+    // Called once from RadioApplication so every caller shares the disk cache
+    public static synchronized void init(Context context) {
+        init(context, HttpCacheConfig.defaults(context));
+    }
+    
+    public static synchronized void init(Context context, HttpCacheConfig cacheConfig) {
+        if (instance == null) {
+            instance = new RetrofitClient(context.getApplicationContext(), cacheConfig);
+        }
+    }
+    
     public static synchronized RetrofitClient getInstance() {
         if (instance == null) {
-            instance = new RetrofitClient();
+            instance = new RetrofitClient(null, null);
         }
         return instance;
     }
@@ -41,4 +86,17 @@ public class RetrofitClient {
     public RadioBrowserService getRadioBrowserService() {
         return radioBrowserService;
     }
+    
+    public MirrorPool getMirrorPool() {
+        return mirrorPool;
+    }
+    
+    // Blocking; run off the main thread
+    public void refreshMirrors() {
+        try {
+            mirrorPool.probeIfStale(MIRROR_PROBE_INTERVAL_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
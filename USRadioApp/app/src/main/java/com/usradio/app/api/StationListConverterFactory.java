@@ -0,0 +1,43 @@
+package com.usradio.app.api;
+
+import com.usradio.app.model.RadioStation;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+// Handles List<RadioStation> bodies with the streaming parser; anything else falls through to Gson
+public class StationListConverterFactory extends Converter.Factory {
+    
+    public static StationListConverterFactory create() {
+        return new StationListConverterFactory();
+    }
+    
+    private StationListConverterFactory() {}
+    
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        if (!isStationList(type)) {
+            return null;
+        }
+        return (Converter<ResponseBody, List<RadioStation>>) body -> {
+            try {
+                return StationStreamParser.readAll(body.charStream());
+            } finally {
+                body.close();
+            }
+        };
+    }
+    
+    private static boolean isStationList(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return false;
+        }
+        ParameterizedType parameterized = (ParameterizedType) type;
+        return parameterized.getRawType() == List.class
+            && parameterized.getActualTypeArguments()[0] == RadioStation.class;
+    }
+}
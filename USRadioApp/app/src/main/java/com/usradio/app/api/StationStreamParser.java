@@ -0,0 +1,54 @@
+package com.usradio.app.api;
+
+import com.google.gson.stream.JsonReader;
+import com.usradio.app.model.RadioStation;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Decodes a station array incrementally, handing out fixed-size batches while the body is still downloading
+public final class StationStreamParser {
+    
+    private static final RadioStationTypeAdapter STATION_ADAPTER = new RadioStationTypeAdapter();
+    
+    public interface BatchListener {
+        void onBatch(List<RadioStation> batch) throws IOException;
+    }
+    
+    private StationStreamParser() {}
+    
+    public static int parse(Reader reader, int batchSize, BatchListener listener) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        List<RadioStation> batch = new ArrayList<>(batchSize);
+        int count = 0;
+        try {
+            json.beginArray();
+            while (json.hasNext()) {
+                RadioStation station = STATION_ADAPTER.read(json);
+                if (station == null) {
+                    continue;
+                }
+                batch.add(station);
+                count++;
+                if (batch.size() == batchSize) {
+                    listener.onBatch(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            json.endArray();
+        } catch (IllegalStateException e) {
+            throw new IOException("Malformed station list", e);
+        }
+        if (!batch.isEmpty()) {
+            listener.onBatch(batch);
+        }
+        return count;
+    }
+    
+    public static List<RadioStation> readAll(Reader reader) throws IOException {
+        List<RadioStation> stations = new ArrayList<>();
+        parse(reader, 256, stations::addAll);
+        return stations;
+    }
+}
@@ -1,25 +1,124 @@
 package com.usradio.app.database;
 
 import android.content.Context;
+import androidx.annotation.NonNull;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import com.usradio.app.model.CatalogStation;
+import com.usradio.app.model.PlaybackSession;
 import com.usradio.app.model.RadioStation;
+import com.usradio.app.model.ResolvedStream;
+import com.usradio.app.model.StationHealth;
 
-@Database(entities = {RadioStation.class}, version = 1, exportSchema = false)
+@Database(entities = {RadioStation.class, CatalogStation.class, ResolvedStream.class, PlaybackSession.class,
+    StationHealth.class}, version = 9, exportSchema = false)
 public abstract class AppDatabase extends RoomDatabase {
     
     private static AppDatabase instance;
     
     public abstract FavoriteDao favoriteDao();
     
+    public abstract CatalogDao catalogDao();
+    
+    public abstract ResolvedStreamDao resolvedStreamDao();
+    
+    public abstract PlaybackSessionDao playbackSessionDao();
+    
+    public abstract StationHealthDao stationHealthDao();
+    
+    // Adds the station catalog without dropping the user's favorites
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `catalog_stations` ("
+                + "`position` INTEGER NOT NULL, `stationUuid` TEXT NOT NULL, `name` TEXT, "
+                + "`url` TEXT, `urlResolved` TEXT, `homepage` TEXT, `favicon` TEXT, `tags` TEXT, "
+                + "`country` TEXT, `state` TEXT, `language` TEXT, `votes` INTEGER NOT NULL, "
+                + "`codec` TEXT, `bitrate` INTEGER NOT NULL, `isFavorite` INTEGER NOT NULL, "
+                + "PRIMARY KEY(`stationUuid`))");
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_catalog_stations_position` "
+                + "ON `catalog_stations` (`position`)");
+        }
+    };
+    
+    static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `resolved_streams` ("
+                + "`stationUuid` TEXT NOT NULL, `sourceUrl` TEXT, `endpoint` TEXT, "
+                + "`resolvedAt` INTEGER NOT NULL, `successCount` INTEGER NOT NULL, "
+                + "`failureCount` INTEGER NOT NULL, `consecutiveFailures` INTEGER NOT NULL, "
+                + "`lastSuccessAt` INTEGER NOT NULL, `lastFailureAt` INTEGER NOT NULL, "
+                + "PRIMARY KEY(`stationUuid`))");
+        }
+    };
+    
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `playback_sessions` ("
+                + "`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `stationUuid` TEXT, `networkType` TEXT, "
+                + "`startedAt` INTEGER NOT NULL, `connectMs` INTEGER NOT NULL, "
+                + "`timeToFirstAudioMs` INTEGER NOT NULL, `rebufferCount` INTEGER NOT NULL, "
+                + "`rebufferMs` INTEGER NOT NULL, `durationMs` INTEGER NOT NULL, "
+                + "`bytesTransferred` INTEGER NOT NULL, `errorCount` INTEGER NOT NULL, "
+                + "`lastErrorCode` INTEGER NOT NULL, `prewarmed` INTEGER NOT NULL)");
+        }
+    };
+    
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE TABLE IF NOT EXISTS `station_health` ("
+                + "`stationUuid` TEXT NOT NULL, `score` REAL NOT NULL, `lastProbedAt` INTEGER NOT NULL, "
+                + "`lastLatencyMs` INTEGER NOT NULL, `consecutiveFailures` INTEGER NOT NULL, "
+                + "PRIMARY KEY(`stationUuid`))");
+        }
+    };
+    
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `playback_sessions` ADD COLUMN `peakBufferBytes` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+    
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS `index_favorite_stations_name` ON `favorite_stations` (`name`)");
+        }
+    };
+    
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `playback_sessions` ADD COLUMN `recoveryCount` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `playback_sessions` ADD COLUMN `recoveredCount` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `playback_sessions` ADD COLUMN `recoveryMs` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+    
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("ALTER TABLE `playback_sessions` ADD COLUMN `inPlaceRecoveryCount` INTEGER NOT NULL DEFAULT 0");
+            db.execSQL("ALTER TABLE `playback_sessions` ADD COLUMN `sourceSwapCount` INTEGER NOT NULL DEFAULT 0");
+        }
+    };
+    
     public static synchronized AppDatabase getInstance(Context context) {
         if (instance == null) {
             instance = Room.databaseBuilder(
                 context.getApplicationContext(),
                 AppDatabase.class,
                 "radio_database"
-            ).fallbackToDestructiveMigration()
+            ).addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7,
+                MIGRATION_7_8, MIGRATION_8_9)
+             .fallbackToDestructiveMigration()
              .build();
         }
         return instance;
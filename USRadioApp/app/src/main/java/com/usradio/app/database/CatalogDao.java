@@ -0,0 +1,67 @@
+package com.usradio.app.database;
+
+import androidx.paging.PagingSource;
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+import com.usradio.app.model.CatalogStation;
+import com.usradio.app.model.FacetRow;
+import java.util.List;
+
+@Dao
+public interface CatalogDao {
+    
+    // Keep IN (...) lists below SQLite's bound variable limit
+    int MAX_BATCH_VARIABLES = 500;
+    
+    // The head is the part of the catalog revalidated on every launch
+    @Query("SELECT * FROM catalog_stations WHERE position < :limit ORDER BY position ASC")
+    List<CatalogStation> getCatalogHeadSync(int limit);
+    
+    // Facet columns of the head and the paged-in tail alike, past the given rank. With -1 that is
+    // every stored station; with the last rank read, only the rows appended since.
+    @Query("SELECT stationUuid, tags, state, codec, bitrate, position FROM catalog_stations "
+        + "WHERE position > :afterPosition ORDER BY position ASC")
+    List<FacetRow> getFacetRowsSync(int afterPosition);
+    
+    // At most MAX_BATCH_VARIABLES uuids
+    @Query("SELECT * FROM catalog_stations WHERE stationUuid IN (:stationUuids) ORDER BY position ASC")
+    List<CatalogStation> getStationsSync(List<String> stationUuids);
+    
+    // Stations whose health score fell below the threshold sink to the end of the list
+    @Query("SELECT catalog_stations.* FROM catalog_stations "
+        + "LEFT JOIN station_health ON station_health.stationUuid = catalog_stations.stationUuid "
+        + "ORDER BY COALESCE(station_health.score, 1.0) < :unhealthyBelow, position ASC")
+    PagingSource<Integer, CatalogStation> pagingSource(double unhealthyBelow);
+    
+    @Query("SELECT COALESCE(MAX(position), -1) FROM catalog_stations")
+    int getMaxPosition();
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertStations(List<CatalogStation> stations);
+    
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertStationsIfAbsent(List<CatalogStation> stations);
+    
+    @Query("DELETE FROM catalog_stations WHERE stationUuid IN (:stationUuids)")
+    void deleteStations(List<String> stationUuids);
+    
+    // Writes only the rank, for rows whose content is unchanged
+    @Query("UPDATE catalog_stations SET position = :position WHERE stationUuid = :stationUuid")
+    void updatePosition(String stationUuid, int position);
+    
+    @Transaction
+    default void applyChanges(List<CatalogStation> upserts, List<CatalogStation> moves, List<String> deletedUuids) {
+        for (int i = 0; i < deletedUuids.size(); i += MAX_BATCH_VARIABLES) {
+            deleteStations(deletedUuids.subList(i, Math.min(i + MAX_BATCH_VARIABLES, deletedUuids.size())));
+        }
+        for (CatalogStation moved : moves) {
+            updatePosition(moved.getStationUuid(), moved.getPosition());
+        }
+        if (!upserts.isEmpty()) {
+            upsertStations(upserts);
+        }
+    }
+}
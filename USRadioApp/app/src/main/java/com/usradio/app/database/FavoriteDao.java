@@ -6,27 +6,73 @@ import androidx.room.Delete;
 import androidx.room.Insert;
 import androidx.room.OnConflictStrategy;
 import androidx.room.Query;
+import androidx.room.RoomWarnings;
+import androidx.room.Transaction;
 import com.usradio.app.model.RadioStation;
 import java.util.List;
 
 @Dao
 public interface FavoriteDao {
     
+    // Keep IN (...) lists below SQLite's bound variable limit
+    int MAX_BATCH_VARIABLES = 500;
+    
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     void insertFavorite(RadioStation station);
     
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertFavorites(List<RadioStation> stations);
+    
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    void insertFavoritesIfAbsent(List<RadioStation> stations);
+    
     @Delete
     void deleteFavorite(RadioStation station);
     
-    @Query("SELECT * FROM favorite_stations ORDER BY name ASC")
+    // Only the columns the list rows and the player read; walks the name index instead of sorting.
+    // The rows lack homepage, country, language and votes, so they must never be written back.
+    @SuppressWarnings(RoomWarnings.CURSOR_MISMATCH)
+    @Query("SELECT stationUuid, name, url, urlResolved, favicon, tags, state, codec, bitrate "
+        + "FROM favorite_stations ORDER BY name ASC")
     LiveData<List<RadioStation>> getAllFavorites();
     
+    // Full rows, for export and stream probing
     @Query("SELECT * FROM favorite_stations ORDER BY name ASC")
     List<RadioStation> getAllFavoritesSync();
     
+    @Query("SELECT * FROM favorite_stations WHERE stationUuid IN (:stationUuids)")
+    List<RadioStation> getFavoritesSync(List<String> stationUuids);
+    
+    @Query("SELECT stationUuid FROM favorite_stations")
+    List<String> getFavoriteUuidsSync();
+    
     @Query("SELECT EXISTS(SELECT 1 FROM favorite_stations WHERE stationUuid = :stationUuid)")
     boolean isFavorite(String stationUuid);
     
     @Query("DELETE FROM favorite_stations WHERE stationUuid = :stationUuid")
     void deleteFavoriteById(String stationUuid);
+    
+    @Query("DELETE FROM favorite_stations WHERE stationUuid IN (:stationUuids)")
+    void deleteFavoritesById(List<String> stationUuids);
+    
+    @Query("DELETE FROM favorite_stations")
+    void deleteAllFavorites();
+    
+    // One transaction for a whole burst of toggles. A star toggled off and on again within the burst
+    // may hand back a partial row from getAllFavorites; the stored full row is kept instead.
+    @Transaction
+    default void applyChanges(List<RadioStation> inserts, List<String> deletedUuids) {
+        for (int i = 0; i < deletedUuids.size(); i += MAX_BATCH_VARIABLES) {
+            deleteFavoritesById(deletedUuids.subList(i, Math.min(i + MAX_BATCH_VARIABLES, deletedUuids.size())));
+        }
+        if (!inserts.isEmpty()) {
+            insertFavoritesIfAbsent(inserts);
+        }
+    }
+    
+    @Transaction
+    default void replaceAll(List<RadioStation> stations) {
+        deleteAllFavorites();
+        insertFavorites(stations);
+    }
 }
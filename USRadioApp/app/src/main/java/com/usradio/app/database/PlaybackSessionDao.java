@@ -0,0 +1,21 @@
+package com.usradio.app.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import com.usradio.app.model.PlaybackSession;
+import java.util.List;
+
+@Dao
+public interface PlaybackSessionDao {
+    
+    @Insert
+    void insertSession(PlaybackSession session);
+    
+    @Query("SELECT * FROM playback_sessions ORDER BY startedAt ASC")
+    List<PlaybackSession> getAllSessions();
+    
+    @Query("DELETE FROM playback_sessions WHERE id NOT IN "
+        + "(SELECT id FROM playback_sessions ORDER BY startedAt DESC LIMIT :keep)")
+    void deleteAllButNewest(int keep);
+}
@@ -0,0 +1,28 @@
+package com.usradio.app.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import com.usradio.app.model.ResolvedStream;
+
+@Dao
+public interface ResolvedStreamDao {
+    
+    @Query("SELECT * FROM resolved_streams WHERE stationUuid = :stationUuid")
+    ResolvedStream getResolvedStream(String stationUuid);
+    
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertResolvedStream(ResolvedStream stream);
+    
+    @Query("UPDATE resolved_streams SET successCount = successCount + 1, consecutiveFailures = 0, "
+        + "lastSuccessAt = :now WHERE stationUuid = :stationUuid")
+    void recordSuccess(String stationUuid, long now);
+    
+    @Query("UPDATE resolved_streams SET failureCount = failureCount + 1, "
+        + "consecutiveFailures = consecutiveFailures + 1, lastFailureAt = :now WHERE stationUuid = :stationUuid")
+    void recordFailure(String stationUuid, long now);
+    
+    @Query("DELETE FROM resolved_streams WHERE resolvedAt < :cutoff")
+    void deleteResolvedBefore(long cutoff);
+}
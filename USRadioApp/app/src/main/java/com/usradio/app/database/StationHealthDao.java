@@ -0,0 +1,25 @@
+package com.usradio.app.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import com.usradio.app.model.StationHealth;
+import java.util.List;
+
+@Dao
+public interface StationHealthDao {
+    
+    @Query("SELECT * FROM station_health WHERE stationUuid = :stationUuid")
+    StationHealth getHealth(String stationUuid);
+    
+    @Query("SELECT stationUuid FROM station_health WHERE score < :threshold")
+    List<String> getUnhealthyUuids(double threshold);
+    
+    @Query("SELECT stationUuid FROM station_health WHERE lastProbedAt >= :since")
+    List<String> getProbedSince(long since);
+    
+    // One transaction, so the paged catalog that joins this table is invalidated once per probe run
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertHealth(List<StationHealth> health);
+}
@@ -0,0 +1,155 @@
+package com.usradio.app.image;
+
+import android.content.SharedPreferences;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
+
+// Remembers favicon URLs, and hosts, that failed recently so they are not fetched again on every
+// scroll. Entries expire, and the set is persisted so dead icons stay skipped across launches.
+class FaviconFailureCache {
+    
+    static final long URL_EXPIRY_MS = TimeUnit.HOURS.toMillis(24);
+    static final long HOST_EXPIRY_MS = TimeUnit.HOURS.toMillis(6);
+    // Distinct failing URLs after which the whole host is skipped
+    static final int HOST_FAILURE_THRESHOLD = 3;
+    static final int MAX_ENTRIES = 1000;
+    private static final String URL_PREFIX = "u:";
+    private static final String HOST_PREFIX = "h:";
+    
+    interface Clock {
+        long now();
+    }
+    
+    private final SharedPreferences preferences;
+    private final Clock clock;
+    // Key (prefixed URL or host) to expiry time
+    private final Map<String, Long> expiries = new HashMap<>();
+    private final Map<String, Integer> hostFailures = new HashMap<>();
+    
+    // preferences may be null, in which case nothing is persisted
+    FaviconFailureCache(SharedPreferences preferences, Clock clock) {
+        this.preferences = preferences;
+        this.clock = clock;
+        restore();
+    }
+    
+    synchronized boolean shouldSkip(String url) {
+        long now = clock.now();
+        if (isLive(URL_PREFIX + url, now)) {
+            return true;
+        }
+        String host = hostOf(url);
+        return host != null && isLive(HOST_PREFIX + host, now);
+    }
+    
+    synchronized void recordFailure(String url) {
+        long now = clock.now();
+        SharedPreferences.Editor editor = preferences != null ? preferences.edit() : null;
+        put(editor, URL_PREFIX + url, now + URL_EXPIRY_MS);
+        String host = hostOf(url);
+        if (host != null) {
+            int failures = hostFailures.containsKey(host) ? hostFailures.get(host) + 1 : 1;
+            hostFailures.put(host, failures);
+            if (failures >= HOST_FAILURE_THRESHOLD) {
+                put(editor, HOST_PREFIX + host, now + HOST_EXPIRY_MS);
+                hostFailures.remove(host);
+            }
+        }
+        for (String removed : trim(now)) {
+            if (editor != null) {
+                editor.remove(removed);
+            }
+        }
+        if (editor != null) {
+            editor.apply();
+        }
+    }
+    
+    synchronized void recordSuccess(String url) {
+        List<String> cleared = new ArrayList<>(2);
+        if (expiries.remove(URL_PREFIX + url) != null) {
+            cleared.add(URL_PREFIX + url);
+        }
+        String host = hostOf(url);
+        if (host != null) {
+            hostFailures.remove(host);
+            if (expiries.remove(HOST_PREFIX + host) != null) {
+                cleared.add(HOST_PREFIX + host);
+            }
+        }
+        if (preferences != null && !cleared.isEmpty()) {
+            SharedPreferences.Editor editor = preferences.edit();
+            for (String key : cleared) {
+                editor.remove(key);
+            }
+            editor.apply();
+        }
+    }
+    
+    private boolean isLive(String key, long now) {
+        Long expiry = expiries.get(key);
+        if (expiry == null) {
+            return false;
+        }
+        if (expiry <= now) {
+            expiries.remove(key);
+            return false;
+        }
+        return true;
+    }
+    
+    private void put(SharedPreferences.Editor editor, String key, long expiry) {
+        expiries.put(key, expiry);
+        if (editor != null) {
+            editor.putLong(key, expiry);
+        }
+    }
+    
+    // Drops expired entries, then the ones closest to expiry, to stay within MAX_ENTRIES
+    private List<String> trim(long now) {
+        List<String> removed = new ArrayList<>();
+        Iterator<Map.Entry<String, Long>> iterator = expiries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (entry.getValue() <= now) {
+                removed.add(entry.getKey());
+                iterator.remove();
+            }
+        }
+        while (expiries.size() > MAX_ENTRIES) {
+            String soonest = null;
+            long soonestExpiry = Long.MAX_VALUE;
+            for (Map.Entry<String, Long> entry : expiries.entrySet()) {
+                if (entry.getValue() < soonestExpiry) {
+                    soonest = entry.getKey();
+                    soonestExpiry = entry.getValue();
+                }
+            }
+            expiries.remove(soonest);
+            removed.add(soonest);
+        }
+        return removed;
+    }
+    
+    private void restore() {
+        if (preferences == null) {
+            return;
+        }
+        long now = clock.now();
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (entry.getValue() instanceof Long && (Long) entry.getValue() > now) {
+                expiries.put(entry.getKey(), (Long) entry.getValue());
+            }
+        }
+    }
+    
+    private static String hostOf(String url) {
+        HttpUrl parsed = HttpUrl.parse(url);
+        return parsed != null ? parsed.host() : null;
+    }
+}
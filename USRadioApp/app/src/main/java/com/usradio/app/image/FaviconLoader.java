@@ -0,0 +1,161 @@
+package com.usradio.app.image;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.widget.ImageView;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+import com.bumptech.glide.Glide;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.load.engine.GlideException;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.CustomTarget;
+import com.bumptech.glide.request.target.Target;
+import com.bumptech.glide.request.transition.Transition;
+import com.bumptech.glide.util.FixedPreloadSizeProvider;
+import com.usradio.app.model.Station;
+import com.usradio.app.network.NetworkType;
+import java.util.Collections;
+import java.util.List;
+
+// Single entry point for station favicons. Every request decodes to the same small size, so
+// the list rows, the scroll-ahead preloads and the player card all share one memory-cache entry.
+public class FaviconLoader {
+    
+    // Matches the list row logo; the smaller player icon scales the same bitmap down
+    private static final int ICON_SIZE_DP = 64;
+    // Rows loaded ahead of the scroll position
+    private static final int PRELOAD_AHEAD = 10;
+    private static final int PLACEHOLDER = android.R.drawable.ic_btn_speak_now;
+    
+    private static FaviconLoader instance;
+    private final Context context;
+    private final int iconSizePx;
+    private final FaviconFailureCache failureCache;
+    
+    public interface StationAtPosition {
+        @Nullable
+        Station stationAt(int position);
+    }
+    
+    public interface BitmapCallback {
+        void onBitmap(Bitmap bitmap);
+    }
+    
+    private final RequestListener<Drawable> failureListener = new RequestListener<Drawable>() {
+        @Override
+        public boolean onLoadFailed(@Nullable GlideException e, Object model, Target<Drawable> target, boolean isFirstResource) {
+            // Without a network every icon fails; that says nothing about the icon
+            if (model instanceof String && !NetworkType.OFFLINE.equals(NetworkType.current(context))) {
+                failureCache.recordFailure((String) model);
+            }
+            return false;
+        }
+        
+        @Override
+        public boolean onResourceReady(Drawable resource, Object model, Target<Drawable> target,
+                                       DataSource dataSource, boolean isFirstResource) {
+            if (model instanceof String && dataSource == DataSource.REMOTE) {
+                failureCache.recordSuccess((String) model);
+            }
+            return false;
+        }
+    };
+    
+    private FaviconLoader(Context context) {
+        this.context = context.getApplicationContext();
+        iconSizePx = Math.round(ICON_SIZE_DP * this.context.getResources().getDisplayMetrics().density);
+        failureCache = new FaviconFailureCache(
+            this.context.getSharedPreferences("favicon_failures", Context.MODE_PRIVATE),
+            System::currentTimeMillis);
+    }
+    
+    public static synchronized FaviconLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new FaviconLoader(context);
+        }
+        return instance;
+    }
+    
+    public void load(ImageView target, Station station) {
+        String url = faviconUrl(station);
+        if (url == null) {
+            Glide.with(target).clear(target);
+            target.setImageResource(PLACEHOLDER);
+            return;
+        }
+        request(Glide.with(target).asDrawable(), url)
+            .placeholder(PLACEHOLDER)
+            .error(PLACEHOLDER)
+            .into(target);
+    }
+    
+    // Artwork for the media notification; not called back when the station has no usable icon.
+    // Decoded to the list size, so the downsampled disk entry is shared with the rows.
+    public void loadBitmap(Station station, BitmapCallback callback) {
+        String url = faviconUrl(station);
+        if (url == null) {
+            return;
+        }
+        Glide.with(context)
+            .asBitmap()
+            .load(url)
+            .override(iconSizePx)
+            .centerCrop()
+            .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
+            .into(new CustomTarget<Bitmap>() {
+                @Override
+                public void onResourceReady(Bitmap resource, @Nullable Transition<? super Bitmap> transition) {
+                    callback.onBitmap(resource);
+                }
+                
+                @Override
+                public void onLoadCleared(@Nullable Drawable placeholder) {}
+            });
+    }
+    
+    // Scroll listener that warms the memory cache for the rows about to appear
+    public RecyclerView.OnScrollListener createPreloader(RecyclerView recyclerView, StationAtPosition stations) {
+        ListPreloader.PreloadModelProvider<String> modelProvider = new ListPreloader.PreloadModelProvider<String>() {
+            @Override
+            public List<String> getPreloadItems(int position) {
+                String url = faviconUrl(stations.stationAt(position));
+                return url != null ? Collections.singletonList(url) : Collections.emptyList();
+            }
+            
+            @Nullable
+            @Override
+            public RequestBuilder<?> getPreloadRequestBuilder(String url) {
+                return request(Glide.with(recyclerView).asDrawable(), url);
+            }
+        };
+        return new RecyclerViewPreloader<>(Glide.with(recyclerView), modelProvider,
+            new FixedPreloadSizeProvider<>(iconSizePx, iconSizePx), PRELOAD_AHEAD);
+    }
+    
+    // Preloads must build the same request as load() for their results to be reused
+    private RequestBuilder<Drawable> request(RequestBuilder<Drawable> builder, String url) {
+        return builder
+            .load(url)
+            .override(iconSizePx)
+            .centerCrop()
+            // Only the downsampled icon is kept on disk, never the full-size source
+            .diskCacheStrategy(DiskCacheStrategy.RESOURCE)
+            .listener(failureListener);
+    }
+    
+    // Null when the station has no favicon or its URL or host failed recently
+    @Nullable
+    private String faviconUrl(@Nullable Station station) {
+        if (station == null || station.getFavicon() == null || station.getFavicon().isEmpty()) {
+            return null;
+        }
+        String url = station.getFavicon();
+        return failureCache.shouldSkip(url) ? null : url;
+    }
+}
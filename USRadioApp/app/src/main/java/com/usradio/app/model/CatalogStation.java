@@ -0,0 +1,30 @@
+package com.usradio.app.model;
+
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.RoomWarnings;
+
+// The catalog is ordered by position, so the favorites' name index is not carried over
+@SuppressWarnings(RoomWarnings.INDEX_FROM_PARENT_IS_DROPPED)
+@Entity(tableName = "catalog_stations", indices = {@Index("position")})
+public class CatalogStation extends RadioStation {
+    
+    // Rank of the station in the server ordering (by votes)
+    private int position;
+    
+    public CatalogStation() {}
+    
+    public static CatalogStation from(Station station, int position) {
+        CatalogStation row = new CatalogStation();
+        row.copyFrom(station);
+        row.position = position;
+        return row;
+    }
+    
+    public int getPosition() { return position; }
+    public void setPosition(int position) { this.position = position; }
+    
+    public boolean hasSameRow(CatalogStation other) {
+        return other != null && position == other.position && hasSameContent(other);
+    }
+}
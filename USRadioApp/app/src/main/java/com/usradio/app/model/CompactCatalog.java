@@ -0,0 +1,181 @@
+package com.usradio.app.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+// Read-only, column-oriented snapshot of the station catalog. Country, state, codec, language and
+// tags repeat across thousands of stations, so they are interned into one shared dictionary and
+// stored as codes; votes and bitrate live in primitive arrays. Rows are handed out as flyweights.
+public final class CompactCatalog {
+    
+    public static final CompactCatalog EMPTY = of(Collections.<Station>emptyList());
+    
+    private final int size;
+    private final String[] uuids;
+    private final String[] names;
+    private final String[] urls;
+    // Same instance as the url when the server reports no separate resolved URL
+    private final String[] resolvedUrls;
+    private final String[] homepages;
+    private final String[] favicons;
+    private final String[] dictionary;
+    private final int[] countries;
+    private final int[] states;
+    private final int[] codecs;
+    private final int[] languages;
+    private final int[] tags;
+    private final int[] votes;
+    private final int[] bitrates;
+    // Flyweights are created on first access and can be dropped under memory pressure
+    private volatile Row[] rows;
+    
+    private CompactCatalog(List<? extends Station> stations) {
+        size = stations.size();
+        uuids = new String[size];
+        names = new String[size];
+        urls = new String[size];
+        resolvedUrls = new String[size];
+        homepages = new String[size];
+        favicons = new String[size];
+        countries = new int[size];
+        states = new int[size];
+        codecs = new int[size];
+        languages = new int[size];
+        tags = new int[size];
+        votes = new int[size];
+        bitrates = new int[size];
+        
+        // Only needed while building; code 0 stands for null
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> values = new ArrayList<>();
+        values.add(null);
+        for (int i = 0; i < size; i++) {
+            Station station = stations.get(i);
+            uuids[i] = station.getStationUuid();
+            names[i] = station.getName();
+            urls[i] = station.getUrl();
+            resolvedUrls[i] = Objects.equals(station.getUrlResolved(), station.getUrl()) ? urls[i] : station.getUrlResolved();
+            homepages[i] = station.getHomepage();
+            favicons[i] = station.getFavicon();
+            countries[i] = intern(station.getCountry(), codes, values);
+            states[i] = intern(station.getState(), codes, values);
+            codecs[i] = intern(station.getCodec(), codes, values);
+            languages[i] = intern(station.getLanguage(), codes, values);
+            tags[i] = intern(station.getTags(), codes, values);
+            votes[i] = station.getVotes();
+            bitrates[i] = station.getBitrate();
+        }
+        dictionary = values.toArray(new String[0]);
+    }
+    
+    public static CompactCatalog of(List<? extends Station> stations) {
+        return new CompactCatalog(stations);
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    // Distinct low-cardinality values shared by all rows
+    public int dictionarySize() {
+        return dictionary.length - 1;
+    }
+    
+    public Row get(int position) {
+        Row[] cached = rows;
+        if (cached == null) {
+            synchronized (this) {
+                cached = rows;
+                if (cached == null) {
+                    cached = new Row[size];
+                    rows = cached;
+                }
+            }
+        }
+        Row row = cached[position];
+        if (row == null) {
+            row = new Row(this, position);
+            cached[position] = row;
+        }
+        return row;
+    }
+    
+    // Live view in catalog order; rows are materialized only as they are read
+    public List<Station> asList() {
+        return new RowList(this);
+    }
+    
+    // Drops the flyweights; the columns stay, and rows are recreated on demand
+    public void releaseRows() {
+        rows = null;
+    }
+    
+    private static int intern(String value, Map<String, Integer> codes, List<String> values) {
+        if (value == null) {
+            return 0;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+    
+    // A read-only view over one row, so adapters, search and facets take it as is. Whatever stores
+    // or plays it takes a copy through RadioStation.of.
+    public static final class Row implements Station {
+        private final CompactCatalog catalog;
+        private final int position;
+        
+        Row(CompactCatalog catalog, int position) {
+            this.catalog = catalog;
+            this.position = position;
+        }
+        
+        public int getPosition() { return position; }
+        
+        @Override public String getStationUuid() { return catalog.uuids[position]; }
+        @Override public String getName() { return catalog.names[position]; }
+        @Override public String getUrl() { return catalog.urls[position]; }
+        @Override public String getUrlResolved() { return catalog.resolvedUrls[position]; }
+        @Override public String getHomepage() { return catalog.homepages[position]; }
+        @Override public String getFavicon() { return catalog.favicons[position]; }
+        @Override public String getTags() { return catalog.dictionary[catalog.tags[position]]; }
+        @Override public String getCountry() { return catalog.dictionary[catalog.countries[position]]; }
+        @Override public String getState() { return catalog.dictionary[catalog.states[position]]; }
+        @Override public String getLanguage() { return catalog.dictionary[catalog.languages[position]]; }
+        @Override public int getVotes() { return catalog.votes[position]; }
+        @Override public String getCodec() { return catalog.dictionary[catalog.codecs[position]]; }
+        @Override public int getBitrate() { return catalog.bitrates[position]; }
+    }
+    
+    private static final class RowList extends AbstractList<Station> implements RandomAccess {
+        private final CompactCatalog catalog;
+        
+        RowList(CompactCatalog catalog) {
+            this.catalog = catalog;
+        }
+        
+        @Override
+        public Station get(int index) {
+            return catalog.get(index);
+        }
+        
+        @Override
+        public int size() {
+            return catalog.size;
+        }
+    }
+}
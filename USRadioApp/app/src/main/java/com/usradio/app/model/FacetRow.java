@@ -0,0 +1,42 @@
+package com.usradio.app.model;
+
+// The columns the facet filters read, projected from catalog_stations so the whole stored catalog
+// can be faceted without loading its rows
+public class FacetRow {
+    
+    private String stationUuid;
+    private String tags;
+    private String state;
+    private String codec;
+    private int bitrate;
+    private int position;
+    
+    public FacetRow() {}
+    
+    public static FacetRow of(Station station, int position) {
+        FacetRow row = new FacetRow();
+        row.stationUuid = station.getStationUuid();
+        row.tags = station.getTags();
+        row.state = station.getState();
+        row.codec = station.getCodec();
+        row.bitrate = station.getBitrate();
+        row.position = position;
+        return row;
+    }
+    
+    // Getters
+    public String getStationUuid() { return stationUuid; }
+    public String getTags() { return tags; }
+    public String getState() { return state; }
+    public String getCodec() { return codec; }
+    public int getBitrate() { return bitrate; }
+    public int getPosition() { return position; }
+    
+    // Setters
+    public void setStationUuid(String stationUuid) { this.stationUuid = stationUuid; }
+    public void setTags(String tags) { this.tags = tags; }
+    public void setState(String state) { this.state = state; }
+    public void setCodec(String codec) { this.codec = codec; }
+    public void setBitrate(int bitrate) { this.bitrate = bitrate; }
+    public void setPosition(int position) { this.position = position; }
+}
@@ -0,0 +1,107 @@
+package com.usradio.app.model;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// QoS record of one play of one station; durations are in milliseconds, -1 when never reached
+@Entity(tableName = "playback_sessions")
+public class PlaybackSession {
+    
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+    
+    private String stationUuid;
+    
+    private String networkType;
+    
+    private long startedAt;
+    
+    // From the tap to an open connection with response headers
+    private long connectMs = -1;
+    
+    // From the tap to the first audio frame being played out
+    private long timeToFirstAudioMs = -1;
+    
+    private int rebufferCount;
+    
+    private long rebufferMs;
+    
+    private long durationMs;
+    
+    private long bytesTransferred;
+    
+    private int errorCount;
+    
+    // ExoPlayer PlaybackException error code, 0 without errors
+    private int lastErrorCode;
+    
+    // Started from a pre-warmed player
+    private boolean prewarmed;
+    
+    // Largest media buffer the player held during the session
+    @ColumnInfo(defaultValue = "0")
+    private long peakBufferBytes;
+    
+    // Drops and stalls the player reconnected after, and how many of those played again
+    @ColumnInfo(defaultValue = "0")
+    private int recoveryCount;
+    
+    @ColumnInfo(defaultValue = "0")
+    private int recoveredCount;
+    
+    // Summed over the successful reconnects, from the drop to audio playing again
+    @ColumnInfo(defaultValue = "0")
+    private long recoveryMs;
+    
+    // Loader drops ridden out on the buffer, against sources replaced and their buffer dropped
+    @ColumnInfo(defaultValue = "0")
+    private int inPlaceRecoveryCount;
+    
+    @ColumnInfo(defaultValue = "0")
+    private int sourceSwapCount;
+    
+    public PlaybackSession() {}
+    
+    // Getters
+    public long getId() { return id; }
+    public String getStationUuid() { return stationUuid; }
+    public String getNetworkType() { return networkType; }
+    public long getStartedAt() { return startedAt; }
+    public long getConnectMs() { return connectMs; }
+    public long getTimeToFirstAudioMs() { return timeToFirstAudioMs; }
+    public int getRebufferCount() { return rebufferCount; }
+    public long getRebufferMs() { return rebufferMs; }
+    public long getDurationMs() { return durationMs; }
+    public long getBytesTransferred() { return bytesTransferred; }
+    public int getErrorCount() { return errorCount; }
+    public int getLastErrorCode() { return lastErrorCode; }
+    public boolean isPrewarmed() { return prewarmed; }
+    public long getPeakBufferBytes() { return peakBufferBytes; }
+    public int getRecoveryCount() { return recoveryCount; }
+    public int getRecoveredCount() { return recoveredCount; }
+    public long getRecoveryMs() { return recoveryMs; }
+    public int getInPlaceRecoveryCount() { return inPlaceRecoveryCount; }
+    public int getSourceSwapCount() { return sourceSwapCount; }
+    
+    // Setters
+    public void setId(long id) { this.id = id; }
+    public void setStationUuid(String stationUuid) { this.stationUuid = stationUuid; }
+    public void setNetworkType(String networkType) { this.networkType = networkType; }
+    public void setStartedAt(long startedAt) { this.startedAt = startedAt; }
+    public void setConnectMs(long connectMs) { this.connectMs = connectMs; }
+    public void setTimeToFirstAudioMs(long timeToFirstAudioMs) { this.timeToFirstAudioMs = timeToFirstAudioMs; }
+    public void setRebufferCount(int rebufferCount) { this.rebufferCount = rebufferCount; }
+    public void setRebufferMs(long rebufferMs) { this.rebufferMs = rebufferMs; }
+    public void setDurationMs(long durationMs) { this.durationMs = durationMs; }
+    public void setBytesTransferred(long bytesTransferred) { this.bytesTransferred = bytesTransferred; }
+    public void setErrorCount(int errorCount) { this.errorCount = errorCount; }
+    public void setLastErrorCode(int lastErrorCode) { this.lastErrorCode = lastErrorCode; }
+    public void setPrewarmed(boolean prewarmed) { this.prewarmed = prewarmed; }
+    public void setPeakBufferBytes(long peakBufferBytes) { this.peakBufferBytes = peakBufferBytes; }
+    public void setRecoveryCount(int recoveryCount) { this.recoveryCount = recoveryCount; }
+    public void setRecoveredCount(int recoveredCount) { this.recoveredCount = recoveredCount; }
+    public void setRecoveryMs(long recoveryMs) { this.recoveryMs = recoveryMs; }
+    public void setInPlaceRecoveryCount(int inPlaceRecoveryCount) { this.inPlaceRecoveryCount = inPlaceRecoveryCount; }
+    public void setSourceSwapCount(int sourceSwapCount) { this.sourceSwapCount = sourceSwapCount; }
+}
@@ -1,15 +1,19 @@
 package com.usradio.app.model;
 
+import androidx.annotation.NonNull;
 import androidx.room.Entity;
+import androidx.room.Index;
 import androidx.room.PrimaryKey;
 import com.google.gson.annotations.SerializedName;
 
-@Entity(tableName = "favorite_stations")
-public class RadioStation {
+// Favorites are listed by name; the index saves a sort on every emission
+@Entity(tableName = "favorite_stations", indices = {@Index("name")})
+public class RadioStation implements Station {
     
     @PrimaryKey
+    @NonNull
     @SerializedName("stationuuid")
-    private String stationUuid;
+    private String stationUuid = "";
     
     @SerializedName("name")
     private String name;
@@ -51,6 +55,16 @@ public class RadioStation {
     
     public RadioStation() {}
     
+    // For anything that stores or plays a station: entities pass through, catalog rows are copied
+    public static RadioStation of(Station station) {
+        if (station instanceof RadioStation) {
+            return (RadioStation) station;
+        }
+        RadioStation copy = new RadioStation();
+        copy.copyFrom(station);
+        return copy;
+    }
+    
     // Getters
     public String getStationUuid() { return stationUuid; }
     public String getName() { return name; }
@@ -83,7 +97,20 @@ public class RadioStation {
     public void setBitrate(int bitrate) { this.bitrate = bitrate; }
     public void setFavorite(boolean favorite) { isFavorite = favorite; }
     
-    public String getStreamUrl() {
-        return urlResolved != null && !urlResolved.isEmpty() ? urlResolved : url;
+    // Server-provided fields only; the local favorite flag stays as it is
+    protected void copyFrom(Station other) {
+        stationUuid = other.getStationUuid();
+        name = other.getName();
+        url = other.getUrl();
+        urlResolved = other.getUrlResolved();
+        homepage = other.getHomepage();
+        favicon = other.getFavicon();
+        tags = other.getTags();
+        country = other.getCountry();
+        state = other.getState();
+        language = other.getLanguage();
+        votes = other.getVotes();
+        codec = other.getCodec();
+        bitrate = other.getBitrate();
     }
 }
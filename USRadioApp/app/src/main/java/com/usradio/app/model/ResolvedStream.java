@@ -0,0 +1,64 @@
+package com.usradio.app.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// The playable endpoint behind a station's playlist or redirect chain, with its play history
+@Entity(tableName = "resolved_streams")
+public class ResolvedStream {
+    
+    @PrimaryKey
+    @NonNull
+    private String stationUuid = "";
+    
+    // The station URL the endpoint was resolved from; a changed URL invalidates it
+    private String sourceUrl;
+    
+    private String endpoint;
+    
+    private long resolvedAt;
+    
+    private int successCount;
+    
+    private int failureCount;
+    
+    private int consecutiveFailures;
+    
+    private long lastSuccessAt;
+    
+    private long lastFailureAt;
+    
+    public ResolvedStream() {}
+    
+    // Getters
+    @NonNull
+    public String getStationUuid() { return stationUuid; }
+    public String getSourceUrl() { return sourceUrl; }
+    public String getEndpoint() { return endpoint; }
+    public long getResolvedAt() { return resolvedAt; }
+    public int getSuccessCount() { return successCount; }
+    public int getFailureCount() { return failureCount; }
+    public int getConsecutiveFailures() { return consecutiveFailures; }
+    public long getLastSuccessAt() { return lastSuccessAt; }
+    public long getLastFailureAt() { return lastFailureAt; }
+    
+    // Setters
+    public void setStationUuid(@NonNull String stationUuid) { this.stationUuid = stationUuid; }
+    public void setSourceUrl(String sourceUrl) { this.sourceUrl = sourceUrl; }
+    public void setEndpoint(String endpoint) { this.endpoint = endpoint; }
+    public void setResolvedAt(long resolvedAt) { this.resolvedAt = resolvedAt; }
+    public void setSuccessCount(int successCount) { this.successCount = successCount; }
+    public void setFailureCount(int failureCount) { this.failureCount = failureCount; }
+    public void setConsecutiveFailures(int consecutiveFailures) { this.consecutiveFailures = consecutiveFailures; }
+    public void setLastSuccessAt(long lastSuccessAt) { this.lastSuccessAt = lastSuccessAt; }
+    public void setLastFailureAt(long lastFailureAt) { this.lastFailureAt = lastFailureAt; }
+    
+    public boolean isUsableFor(String stationUrl, long now, long ttlMs) {
+        return endpoint != null
+            && sourceUrl != null
+            && sourceUrl.equals(stationUrl)
+            && consecutiveFailures == 0
+            && now - resolvedAt < ttlMs;
+    }
+}
@@ -0,0 +1,45 @@
+package com.usradio.app.model;
+
+import java.util.Objects;
+
+// Read-only view of a station's server-provided fields. RadioStation is the mutable entity behind
+// favorites, the player and the network; CompactCatalog rows only read their columns.
+public interface Station {
+    
+    String getStationUuid();
+    String getName();
+    String getUrl();
+    String getUrlResolved();
+    String getHomepage();
+    String getFavicon();
+    String getTags();
+    String getCountry();
+    String getState();
+    String getLanguage();
+    int getVotes();
+    String getCodec();
+    int getBitrate();
+    
+    default String getStreamUrl() {
+        String resolved = getUrlResolved();
+        return resolved != null && !resolved.isEmpty() ? resolved : getUrl();
+    }
+    
+    // Compares the server-provided fields only, so an entity and a catalog row compare by what they show
+    default boolean hasSameContent(Station other) {
+        return other != null
+            && Objects.equals(getStationUuid(), other.getStationUuid())
+            && Objects.equals(getName(), other.getName())
+            && Objects.equals(getUrl(), other.getUrl())
+            && Objects.equals(getUrlResolved(), other.getUrlResolved())
+            && Objects.equals(getHomepage(), other.getHomepage())
+            && Objects.equals(getFavicon(), other.getFavicon())
+            && Objects.equals(getTags(), other.getTags())
+            && Objects.equals(getCountry(), other.getCountry())
+            && Objects.equals(getState(), other.getState())
+            && Objects.equals(getLanguage(), other.getLanguage())
+            && getVotes() == other.getVotes()
+            && Objects.equals(getCodec(), other.getCodec())
+            && getBitrate() == other.getBitrate();
+    }
+}
@@ -0,0 +1,40 @@
+package com.usradio.app.model;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+// Result of background stream probes; score runs from 0 (dead) to 1 (healthy)
+@Entity(tableName = "station_health")
+public class StationHealth {
+    
+    @PrimaryKey
+    @NonNull
+    private String stationUuid = "";
+    
+    private double score = 1.0;
+    
+    private long lastProbedAt;
+    
+    // Time to the first audio byte of the last successful probe
+    private long lastLatencyMs = -1;
+    
+    private int consecutiveFailures;
+    
+    public StationHealth() {}
+    
+    // Getters
+    @NonNull
+    public String getStationUuid() { return stationUuid; }
+    public double getScore() { return score; }
+    public long getLastProbedAt() { return lastProbedAt; }
+    public long getLastLatencyMs() { return lastLatencyMs; }
+    public int getConsecutiveFailures() { return consecutiveFailures; }
+    
+    // Setters
+    public void setStationUuid(@NonNull String stationUuid) { this.stationUuid = stationUuid; }
+    public void setScore(double score) { this.score = score; }
+    public void setLastProbedAt(long lastProbedAt) { this.lastProbedAt = lastProbedAt; }
+    public void setLastLatencyMs(long lastLatencyMs) { this.lastLatencyMs = lastLatencyMs; }
+    public void setConsecutiveFailures(int consecutiveFailures) { this.consecutiveFailures = consecutiveFailures; }
+}
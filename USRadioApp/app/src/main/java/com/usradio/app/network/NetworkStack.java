@@ -0,0 +1,69 @@
+package com.usradio.app.network;
+
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+// One OkHttp connection pool, dispatcher and DNS/TLS state for API calls and audio streams.
+// Clients for each use are derived with newBuilder(), which shares all of these.
+public class NetworkStack {
+    
+    public static final String USER_AGENT = "USRadioApp/1.0";
+    
+    private static final long CONNECT_TIMEOUT_SECONDS = 10;
+    private static final long API_READ_TIMEOUT_SECONDS = 30;
+    private static final long STREAM_READ_TIMEOUT_SECONDS = 10;
+    private static final int MAX_REQUESTS = 64;
+    // The playing stream plus pre-warmed ones can all sit on the same streaming CDN
+    private static final int MAX_REQUESTS_PER_HOST = 6;
+    private static final int MAX_IDLE_CONNECTIONS = 8;
+    private static final long KEEP_ALIVE_MINUTES = 5;
+    
+    private static NetworkStack instance;
+    private final OkHttpClient baseClient;
+    private final OkHttpClient apiClient;
+    private final OkHttpClient streamClient;
+    
+    private NetworkStack() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_REQUESTS_PER_HOST);
+        
+        baseClient = new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+            .connectTimeout(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .build();
+        
+        apiClient = baseClient.newBuilder()
+            .readTimeout(API_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .build();
+        
+        // Live streams never finish, so only a stalled read is an error
+        streamClient = baseClient.newBuilder()
+            .readTimeout(STREAM_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .build();
+    }
+    
+    public static synchronized NetworkStack getInstance() {
+        if (instance == null) {
+            instance = new NetworkStack();
+        }
+        return instance;
+    }
+    
+    // Bare client for short control requests such as mirror probes
+    public OkHttpClient getBaseClient() {
+        return baseClient;
+    }
+    
+    // Starting point for the Retrofit client; callers add their own cache and interceptors
+    public OkHttpClient getApiClient() {
+        return apiClient;
+    }
+    
+    public OkHttpClient getStreamClient() {
+        return streamClient;
+    }
+}
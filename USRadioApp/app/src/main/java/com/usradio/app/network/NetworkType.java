@@ -0,0 +1,47 @@
+package com.usradio.app.network;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.NetworkCapabilities;
+
+// Coarse label of the active network, used to bucket playback statistics
+public final class NetworkType {
+    
+    public static final String WIFI = "wifi";
+    public static final String CELLULAR = "cellular";
+    public static final String ETHERNET = "ethernet";
+    public static final String OTHER = "other";
+    public static final String OFFLINE = "offline";
+    
+    private NetworkType() {}
+    
+    // Unknown connectivity counts as metered
+    public static boolean isUnmetered(Context context) {
+        ConnectivityManager connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null || connectivity.getActiveNetwork() == null) {
+            return false;
+        }
+        return !connectivity.isActiveNetworkMetered();
+    }
+    
+    public static String current(Context context) {
+        ConnectivityManager connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity == null) {
+            return OTHER;
+        }
+        NetworkCapabilities capabilities = connectivity.getNetworkCapabilities(connectivity.getActiveNetwork());
+        if (capabilities == null) {
+            return OFFLINE;
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            return WIFI;
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            return CELLULAR;
+        }
+        if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            return ETHERNET;
+        }
+        return OTHER;
+    }
+}
@@ -0,0 +1,179 @@
+package com.usradio.app.player;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.LoadControl;
+import com.google.android.exoplayer2.Renderer;
+import com.google.android.exoplayer2.source.TrackGroupArray;
+import com.google.android.exoplayer2.trackselection.ExoTrackSelection;
+import com.google.android.exoplayer2.upstream.Allocator;
+import com.google.android.exoplayer2.upstream.DefaultAllocator;
+import com.google.android.exoplayer2.util.Util;
+import java.util.Locale;
+
+// Buffering sized for one audio stream: durations and the byte budget follow the station's
+// bitrate and codec instead of DefaultLoadControl's video-sized defaults. Can be reconfigured
+// between plays and while playing; the loading thread reads the current profile.
+public class AdaptiveLoadControl implements LoadControl {
+    
+    static final int MIN_TARGET_BYTES = 256 * 1024;
+    static final int MAX_TARGET_BYTES = 4 * 1024 * 1024;
+    static final int LOW_MEMORY_MAX_TARGET_BYTES = 1024 * 1024;
+    // Stations that report no bitrate are assumed to be typical MP3
+    private static final int DEFAULT_BITRATE_KBPS = 128;
+    // Container, metadata and bitrate drift on top of the nominal bitrate
+    private static final double OVERHEAD = 1.25;
+    
+    static class BufferProfile {
+        final int minBufferMs;
+        final int maxBufferMs;
+        final int startMs;
+        final int rebufferStartMs;
+        final int targetBytes;
+        
+        BufferProfile(int minBufferMs, int maxBufferMs, int startMs, int rebufferStartMs, int targetBytes) {
+            this.minBufferMs = minBufferMs;
+            this.maxBufferMs = maxBufferMs;
+            this.startMs = startMs;
+            this.rebufferStartMs = rebufferStartMs;
+            this.targetBytes = targetBytes;
+        }
+        
+        // prewarm: a muted standby player that only needs enough to start instantly
+        static BufferProfile forStream(int bitrateKbps, String codec, boolean lowMemory, boolean prewarm) {
+            int kbps = bitrateKbps > 0 ? bitrateKbps : defaultBitrateKbps(codec);
+            int minBufferMs;
+            int maxBufferMs;
+            if (prewarm) {
+                minBufferMs = 2500;
+                maxBufferMs = 5000;
+            } else if (lowMemory) {
+                minBufferMs = 6000;
+                maxBufferMs = 10000;
+            } else if (kbps >= 256) {
+                // High bitrates stall first on a poor link, so they keep more in reserve
+                minBufferMs = 20000;
+                maxBufferMs = 40000;
+            } else {
+                minBufferMs = 15000;
+                maxBufferMs = 30000;
+            }
+            long bytes = (long) (kbps * 1000L / 8 * (maxBufferMs / 1000.0) * OVERHEAD);
+            int cap = lowMemory || prewarm ? LOW_MEMORY_MAX_TARGET_BYTES : MAX_TARGET_BYTES;
+            int targetBytes = (int) Math.max(MIN_TARGET_BYTES, Math.min(cap, bytes));
+            // Audio frames are small, so a second of audio is enough to start without an early stall
+            return new BufferProfile(minBufferMs, maxBufferMs, prewarm ? 500 : 1000, 2500, targetBytes);
+        }
+        
+        static int defaultBitrateKbps(String codec) {
+            String name = codec != null ? codec.toUpperCase(Locale.US) : "";
+            if (name.contains("FLAC")) {
+                return 900;
+            }
+            if (name.contains("AAC+") || name.contains("HE-AAC")) {
+                return 48;
+            }
+            if (name.contains("AAC") || name.contains("OPUS")) {
+                return 96;
+            }
+            return DEFAULT_BITRATE_KBPS;
+        }
+    }
+    
+    private final DefaultAllocator allocator = new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE);
+    private volatile BufferProfile profile = BufferProfile.forStream(0, null, false, false);
+    private volatile int peakBytesAllocated;
+    private boolean isLoading;
+    
+    public void configure(int bitrateKbps, String codec, boolean lowMemory, boolean prewarm) {
+        profile = BufferProfile.forStream(bitrateKbps, codec, lowMemory, prewarm);
+        allocator.setTargetBufferSize(profile.targetBytes);
+    }
+    
+    // Bytes currently held in the media buffer
+    public int getBytesAllocated() {
+        return allocator.getTotalBytesAllocated();
+    }
+    
+    public int getPeakBytesAllocated() {
+        return peakBytesAllocated;
+    }
+    
+    public void resetPeak() {
+        peakBytesAllocated = allocator.getTotalBytesAllocated();
+    }
+    
+    @Override
+    public void onPrepared() {
+        reset(false);
+    }
+    
+    @Override
+    public void onTracksSelected(Renderer[] renderers, TrackGroupArray trackGroups, ExoTrackSelection[] trackSelections) {
+        allocator.setTargetBufferSize(profile.targetBytes);
+    }
+    
+    @Override
+    public void onStopped() {
+        reset(true);
+    }
+    
+    @Override
+    public void onReleased() {
+        reset(true);
+    }
+    
+    @Override
+    public Allocator getAllocator() {
+        return allocator;
+    }
+    
+    // Live radio never seeks back, so nothing behind the playhead is kept
+    @Override
+    public long getBackBufferDurationUs() {
+        return 0;
+    }
+    
+    @Override
+    public boolean retainBackBufferFromKeyframe() {
+        return false;
+    }
+    
+    @Override
+    public boolean shouldContinueLoading(long playbackPositionUs, long bufferedDurationUs, float playbackSpeed) {
+        BufferProfile current = profile;
+        int allocated = allocator.getTotalBytesAllocated();
+        if (allocated > peakBytesAllocated) {
+            peakBytesAllocated = allocated;
+        }
+        boolean targetBufferSizeReached = allocated >= current.targetBytes;
+        long minBufferUs = Util.msToUs(current.minBufferMs);
+        if (playbackSpeed > 1) {
+            minBufferUs = Math.min(Util.getMediaDurationForPlayoutDuration(minBufferUs, playbackSpeed),
+                Util.msToUs(current.maxBufferMs));
+        }
+        if (bufferedDurationUs < Util.msToUs(current.rebufferStartMs)) {
+            // Never let the byte budget starve playback outright, e.g. when the bitrate is misreported
+            isLoading = true;
+        } else if (bufferedDurationUs < minBufferUs) {
+            isLoading = !targetBufferSizeReached;
+        } else if (bufferedDurationUs >= Util.msToUs(current.maxBufferMs) || targetBufferSizeReached) {
+            isLoading = false;
+        }
+        return isLoading;
+    }
+    
+    @Override
+    public boolean shouldStartPlayback(long bufferedDurationUs, float playbackSpeed, boolean rebuffering, long targetLiveOffsetUs) {
+        BufferProfile current = profile;
+        bufferedDurationUs = Util.getPlayoutDurationForMediaDuration(bufferedDurationUs, playbackSpeed);
+        long thresholdUs = Util.msToUs(rebuffering ? current.rebufferStartMs : current.startMs);
+        return bufferedDurationUs >= thresholdUs || allocator.getTotalBytesAllocated() >= current.targetBytes;
+    }
+    
+    private void reset(boolean resetAllocator) {
+        isLoading = false;
+        if (resetAllocator) {
+            allocator.reset();
+        }
+    }
+}
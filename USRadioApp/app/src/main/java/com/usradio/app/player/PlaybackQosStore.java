@@ -0,0 +1,217 @@
+package com.usradio.app.player;
+
+import android.content.Context;
+import com.usradio.app.database.AppDatabase;
+import com.usradio.app.database.PlaybackSessionDao;
+import com.usradio.app.model.PlaybackSession;
+import com.usradio.app.task.TaskScheduler;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// Keeps the most recent playback sessions and summarizes them per station and per network type
+public class PlaybackQosStore {
+    
+    // Old sessions are pruned so the table stays small
+    static final int MAX_SESSIONS = 2000;
+    
+    public interface KeyFunction {
+        String keyOf(PlaybackSession session);
+    }
+    
+    public static class Summary {
+        public final String key;
+        public final int sessions;
+        public final long[] connectMs;
+        public final long[] timeToFirstAudioMs;
+        public final long[] peakBufferBytes;
+        public final double rebuffersPerHour;
+        public final double errorRate;
+        public final int recoveries;
+        // Share of drops and stalls that played again, 0 without any
+        public final double recoveryRate;
+        // Mean outage per successful reconnect, one value per session that had one
+        public final long[] recoveryMs;
+        // Drops the buffer covered, against reconnects that replaced the source
+        public final int inPlaceRecoveries;
+        public final int sourceSwaps;
+        
+        Summary(String key, int sessions, long[] connectMs, long[] timeToFirstAudioMs, long[] peakBufferBytes,
+                double rebuffersPerHour, double errorRate, int recoveries, double recoveryRate, long[] recoveryMs,
+                int inPlaceRecoveries, int sourceSwaps) {
+            this.key = key;
+            this.sessions = sessions;
+            this.connectMs = connectMs;
+            this.timeToFirstAudioMs = timeToFirstAudioMs;
+            this.peakBufferBytes = peakBufferBytes;
+            this.rebuffersPerHour = rebuffersPerHour;
+            this.errorRate = errorRate;
+            this.recoveries = recoveries;
+            this.recoveryRate = recoveryRate;
+            this.recoveryMs = recoveryMs;
+            this.inPlaceRecoveries = inPlaceRecoveries;
+            this.sourceSwaps = sourceSwaps;
+        }
+        
+        @Override
+        public String toString() {
+            return key + ": n=" + sessions
+                + " connect p50/p95/p99=" + Arrays.toString(connectMs)
+                + " ttfa p50/p95/p99=" + Arrays.toString(timeToFirstAudioMs)
+                + " buffer bytes p50/p95/p99=" + Arrays.toString(peakBufferBytes)
+                + " rebuffers/h=" + String.format(Locale.US, "%.2f", rebuffersPerHour)
+                + " errors=" + String.format(Locale.US, "%.1f%%", errorRate * 100)
+                + " recoveries=" + recoveries
+                + " recovered=" + String.format(Locale.US, "%.1f%%", recoveryRate * 100)
+                + " recovery ms p50/p95/p99=" + Arrays.toString(recoveryMs)
+                + " in place=" + inPlaceRecoveries
+                + " swaps=" + sourceSwaps;
+        }
+    }
+    
+    private static final double[] PERCENTILES = {0.50, 0.95, 0.99};
+    private static final String CSV_HEADER = "id,stationUuid,networkType,startedAt,connectMs,timeToFirstAudioMs,"
+        + "rebufferCount,rebufferMs,durationMs,bytesTransferred,errorCount,lastErrorCode,prewarmed,peakBufferBytes,"
+        + "recoveryCount,recoveredCount,recoveryMs,inPlaceRecoveryCount,sourceSwapCount";
+    
+    private final PlaybackSessionDao dao;
+    private final Executor executor = TaskScheduler.getInstance().serial(TaskScheduler.Priority.BACKGROUND);
+    
+    public PlaybackQosStore(Context context) {
+        this(AppDatabase.getInstance(context).playbackSessionDao());
+    }
+    
+    PlaybackQosStore(PlaybackSessionDao dao) {
+        this.dao = dao;
+    }
+    
+    public void record(PlaybackSession session) {
+        executor.execute(() -> {
+            dao.insertSession(session);
+            dao.deleteAllButNewest(MAX_SESSIONS);
+        });
+    }
+    
+    // Blocking; run off the main thread
+    public List<Summary> summarizeByStation() {
+        return summarize(dao.getAllSessions(), PlaybackSession::getStationUuid);
+    }
+    
+    // Blocking; run off the main thread
+    public List<Summary> summarizeByNetworkType() {
+        return summarize(dao.getAllSessions(), PlaybackSession::getNetworkType);
+    }
+    
+    // Blocking; writes every stored session as CSV for offline analysis
+    public void exportCsv(Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        for (PlaybackSession s : dao.getAllSessions()) {
+            writer.write(s.getId() + "," + csv(s.getStationUuid()) + "," + csv(s.getNetworkType()) + ","
+                + s.getStartedAt() + "," + s.getConnectMs() + "," + s.getTimeToFirstAudioMs() + ","
+                + s.getRebufferCount() + "," + s.getRebufferMs() + "," + s.getDurationMs() + ","
+                + s.getBytesTransferred() + "," + s.getErrorCount() + "," + s.getLastErrorCode() + ","
+                + (s.isPrewarmed() ? 1 : 0) + "," + s.getPeakBufferBytes() + ","
+                + s.getRecoveryCount() + "," + s.getRecoveredCount() + "," + s.getRecoveryMs() + ","
+                + s.getInPlaceRecoveryCount() + "," + s.getSourceSwapCount());
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+    
+    static List<Summary> summarize(List<PlaybackSession> sessions, KeyFunction keyFunction) {
+        Map<String, List<PlaybackSession>> groups = new LinkedHashMap<>();
+        for (PlaybackSession session : sessions) {
+            String key = keyFunction.keyOf(session);
+            List<PlaybackSession> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(key, group);
+            }
+            group.add(session);
+        }
+        List<Summary> summaries = new ArrayList<>(groups.size());
+        for (Map.Entry<String, List<PlaybackSession>> entry : groups.entrySet()) {
+            summaries.add(summarizeGroup(entry.getKey(), entry.getValue()));
+        }
+        return summaries;
+    }
+    
+    private static Summary summarizeGroup(String key, List<PlaybackSession> group) {
+        long[] connect = new long[group.size()];
+        long[] firstAudio = new long[group.size()];
+        long[] peakBuffer = new long[group.size()];
+        long[] recovery = new long[group.size()];
+        int connectCount = 0;
+        int firstAudioCount = 0;
+        int recoveryCount = 0;
+        int recoveries = 0;
+        int recovered = 0;
+        int inPlace = 0;
+        int swaps = 0;
+        long rebuffers = 0;
+        long durationMs = 0;
+        int failed = 0;
+        for (int i = 0; i < group.size(); i++) {
+            PlaybackSession session = group.get(i);
+            peakBuffer[i] = session.getPeakBufferBytes();
+            if (session.getConnectMs() >= 0) {
+                connect[connectCount++] = session.getConnectMs();
+            }
+            if (session.getTimeToFirstAudioMs() >= 0) {
+                firstAudio[firstAudioCount++] = session.getTimeToFirstAudioMs();
+            }
+            rebuffers += session.getRebufferCount();
+            durationMs += session.getDurationMs();
+            if (session.getErrorCount() > 0) {
+                failed++;
+            }
+            recoveries += session.getRecoveryCount();
+            recovered += session.getRecoveredCount();
+            inPlace += session.getInPlaceRecoveryCount();
+            swaps += session.getSourceSwapCount();
+            if (session.getRecoveredCount() > 0) {
+                recovery[recoveryCount++] = session.getRecoveryMs() / session.getRecoveredCount();
+            }
+        }
+        double hours = durationMs / 3_600_000.0;
+        return new Summary(key, group.size(),
+            percentiles(connect, connectCount), percentiles(firstAudio, firstAudioCount),
+            percentiles(peakBuffer, group.size()),
+            hours > 0 ? rebuffers / hours : 0, (double) failed / group.size(),
+            recoveries, recoveries > 0 ? (double) recovered / recoveries : 0, percentiles(recovery, recoveryCount),
+            inPlace, swaps);
+    }
+    
+    // Nearest-rank percentiles of the first count values; -1 when there are none
+    static long[] percentiles(long[] values, int count) {
+        long[] result = new long[PERCENTILES.length];
+        if (count == 0) {
+            Arrays.fill(result, -1);
+            return result;
+        }
+        long[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            int rank = (int) Math.ceil(PERCENTILES[i] * count);
+            result[i] = sorted[Math.max(0, rank - 1)];
+        }
+        return result;
+    }
+    
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,212 @@
+package com.usradio.app.player;
+
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.app.Service;
+import android.content.Intent;
+import android.content.pm.ServiceInfo;
+import android.graphics.Bitmap;
+import android.os.Binder;
+import android.os.Build;
+import android.os.IBinder;
+import android.support.v4.media.MediaMetadataCompat;
+import android.support.v4.media.session.MediaSessionCompat;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import com.google.android.exoplayer2.ForwardingPlayer;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.ext.mediasession.MediaSessionConnector;
+import com.google.android.exoplayer2.ui.PlayerNotificationManager;
+import com.usradio.app.MainActivity;
+import com.usradio.app.R;
+import com.usradio.app.image.FaviconLoader;
+import com.usradio.app.model.RadioStation;
+
+// Owns the player, so playback outlives the activity and a returning activity finds the same
+// stream still running. The view model binds to it; the media session and its notification take
+// transport controls from the notification, the lock screen and headsets while no UI is around.
+public class PlaybackService extends Service {
+    
+    private static final int NOTIFICATION_ID = 1;
+    private static final String CHANNEL_ID = "playback";
+    
+    public class LocalBinder extends Binder {
+        public RadioPlayer getPlayer() {
+            return radioPlayer;
+        }
+    }
+    
+    private final IBinder binder = new LocalBinder();
+    private RadioPlayer radioPlayer;
+    private MediaSessionCompat mediaSession;
+    private MediaSessionConnector sessionConnector;
+    private PlayerNotificationManager notificationManager;
+    private boolean foreground;
+    // Favicon of the current station; notification updates reuse it instead of loading it again
+    private String artworkUuid;
+    private Bitmap artwork;
+    
+    private final PlayerNotificationManager.MediaDescriptionAdapter descriptionAdapter =
+        new PlayerNotificationManager.MediaDescriptionAdapter() {
+            @Override
+            public CharSequence getCurrentContentTitle(Player player) {
+                RadioStation station = radioPlayer.getCurrentStation();
+                return station != null ? station.getName() : getString(R.string.app_name);
+            }
+            
+            @Nullable
+            @Override
+            public PendingIntent createCurrentContentIntent(Player player) {
+                return contentIntent();
+            }
+            
+            @Nullable
+            @Override
+            public CharSequence getCurrentContentText(Player player) {
+                RadioStation station = radioPlayer.getCurrentStation();
+                return station != null ? station.getState() : null;
+            }
+            
+            @Nullable
+            @Override
+            public Bitmap getCurrentLargeIcon(Player player, PlayerNotificationManager.BitmapCallback callback) {
+                RadioStation station = radioPlayer.getCurrentStation();
+                if (station == null) {
+                    return null;
+                }
+                if (station.getStationUuid().equals(artworkUuid)) {
+                    return artwork;
+                }
+                artworkUuid = station.getStationUuid();
+                artwork = null;
+                FaviconLoader.getInstance(PlaybackService.this).loadBitmap(station, bitmap -> {
+                    if (station.getStationUuid().equals(artworkUuid)) {
+                        artwork = bitmap;
+                        sessionConnector.invalidateMediaSessionMetadata();
+                        callback.onBitmap(bitmap);
+                    }
+                });
+                return null;
+            }
+        };
+    
+    // Foreground while audio plays; a paused notification stays but can be swiped away
+    private final PlayerNotificationManager.NotificationListener notificationListener =
+        new PlayerNotificationManager.NotificationListener() {
+            @Override
+            public void onNotificationPosted(int notificationId, Notification notification, boolean ongoing) {
+                if (ongoing && !foreground) {
+                    // Keeps the service alive once the activity unbinds
+                    ContextCompat.startForegroundService(PlaybackService.this,
+                        new Intent(PlaybackService.this, PlaybackService.class));
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                        startForeground(notificationId, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_MEDIA_PLAYBACK);
+                    } else {
+                        startForeground(notificationId, notification);
+                    }
+                    foreground = true;
+                } else if (!ongoing && foreground) {
+                    stopForeground(false);
+                    foreground = false;
+                }
+            }
+            
+            @Override
+            public void onNotificationCancelled(int notificationId, boolean dismissedByUser) {
+                stopForeground(true);
+                foreground = false;
+                // Lives on while the view model is bound; goes once nothing is playing and nobody is bound
+                stopSelf();
+            }
+        };
+    
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        radioPlayer = new RadioPlayer(this);
+        
+        mediaSession = new MediaSessionCompat(this, "USRadio");
+        mediaSession.setSessionActivity(contentIntent());
+        mediaSession.setActive(true);
+        sessionConnector = new MediaSessionConnector(mediaSession);
+        sessionConnector.setMediaMetadataProvider(this::metadataFor);
+        
+        notificationManager = new PlayerNotificationManager.Builder(this, NOTIFICATION_ID, CHANNEL_ID)
+            .setChannelNameResourceId(R.string.playback_channel)
+            .setMediaDescriptionAdapter(descriptionAdapter)
+            .setNotificationListener(notificationListener)
+            .build();
+        notificationManager.setMediaSessionToken(mediaSession.getSessionToken());
+        // Live radio: nothing to skip or seek
+        notificationManager.setUsePreviousAction(false);
+        notificationManager.setUseNextAction(false);
+        notificationManager.setUseRewindAction(false);
+        notificationManager.setUseFastForwardAction(false);
+        notificationManager.setUseStopAction(true);
+        
+        radioPlayer.setActivePlayerListener(this::attach);
+        attach(radioPlayer.getPlayer());
+    }
+    
+    @Override
+    public IBinder onBind(Intent intent) {
+        return binder;
+    }
+    
+    // Only started by itself to stay alive while playing; media buttons reach the active session directly
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        return START_NOT_STICKY;
+    }
+    
+    // Swiping the app away while paused ends the session; while playing, the audio goes on
+    @Override
+    public void onTaskRemoved(Intent rootIntent) {
+        if (!radioPlayer.isPlaying()) {
+            stopSelf();
+        }
+    }
+    
+    @Override
+    public void onDestroy() {
+        notificationManager.setPlayer(null);
+        sessionConnector.setPlayer(null);
+        mediaSession.release();
+        radioPlayer.setActivePlayerListener(null);
+        radioPlayer.release();
+        super.onDestroy();
+    }
+    
+    // Session and notification follow the active ExoPlayer. Their stop goes through RadioPlayer,
+    // so the QoS session is closed and the UI hears about it.
+    private void attach(Player player) {
+        Player controlled = new ForwardingPlayer(player) {
+            @Override
+            public void stop() {
+                radioPlayer.stop();
+            }
+        };
+        sessionConnector.setPlayer(controlled);
+        notificationManager.setPlayer(controlled);
+    }
+    
+    private MediaMetadataCompat metadataFor(Player player) {
+        RadioStation station = radioPlayer.getCurrentStation();
+        MediaMetadataCompat.Builder metadata = new MediaMetadataCompat.Builder();
+        if (station != null) {
+            metadata.putString(MediaMetadataCompat.METADATA_KEY_TITLE, station.getName())
+                .putString(MediaMetadataCompat.METADATA_KEY_ARTIST, station.getState());
+            if (artwork != null && station.getStationUuid().equals(artworkUuid)) {
+                metadata.putBitmap(MediaMetadataCompat.METADATA_KEY_ART, artwork);
+            }
+        }
+        return metadata.build();
+    }
+    
+    private PendingIntent contentIntent() {
+        Intent intent = new Intent(this, MainActivity.class)
+            .setFlags(Intent.FLAG_ACTIVITY_SINGLE_TOP);
+        return PendingIntent.getActivity(this, 0, intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+}
@@ -0,0 +1,144 @@
+package com.usradio.app.player;
+
+import android.os.SystemClock;
+import com.google.android.exoplayer2.PlaybackException;
+import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
+import com.google.android.exoplayer2.upstream.DataSource;
+import com.google.android.exoplayer2.upstream.DataSpec;
+import com.google.android.exoplayer2.upstream.TransferListener;
+import com.usradio.app.model.PlaybackSession;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Measures one play session on one ExoPlayer. Analytics callbacks arrive on the main thread,
+// transfer callbacks on the loading thread.
+class PlaybackSessionTracker implements AnalyticsListener, TransferListener {
+    
+    private final AdaptiveLoadControl loadControl;
+    
+    private volatile boolean active;
+    private volatile long startElapsed;
+    private volatile long connectedElapsed = -1;
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    
+    private String stationUuid;
+    private String networkType;
+    private long startedAt;
+    private boolean prewarmed;
+    private long timeToFirstAudioMs = -1;
+    private boolean hasBeenReady;
+    private long bufferingSince = -1;
+    private int rebufferCount;
+    private long rebufferMs;
+    private int errorCount;
+    private int lastErrorCode;
+    
+    PlaybackSessionTracker(AdaptiveLoadControl loadControl) {
+        this.loadControl = loadControl;
+    }
+    
+    AdaptiveLoadControl getLoadControl() {
+        return loadControl;
+    }
+    
+    // A pre-warmed player is already connected, and possibly buffered, when its session starts
+    void begin(String stationUuid, String networkType, boolean prewarmed, boolean alreadyReady) {
+        this.stationUuid = stationUuid;
+        this.networkType = networkType;
+        this.prewarmed = prewarmed;
+        startedAt = System.currentTimeMillis();
+        startElapsed = SystemClock.elapsedRealtime();
+        connectedElapsed = prewarmed ? startElapsed : -1;
+        bytesTransferred.set(0);
+        timeToFirstAudioMs = -1;
+        hasBeenReady = alreadyReady;
+        bufferingSince = -1;
+        rebufferCount = 0;
+        rebufferMs = 0;
+        errorCount = 0;
+        lastErrorCode = 0;
+        loadControl.resetPeak();
+        active = true;
+    }
+    
+    // Returns null when no session was running
+    PlaybackSession finish() {
+        if (!active) {
+            return null;
+        }
+        active = false;
+        long now = SystemClock.elapsedRealtime();
+        if (bufferingSince >= 0) {
+            rebufferMs += now - bufferingSince;
+            bufferingSince = -1;
+        }
+        PlaybackSession session = new PlaybackSession();
+        session.setStationUuid(stationUuid);
+        session.setNetworkType(networkType);
+        session.setStartedAt(startedAt);
+        session.setConnectMs(connectedElapsed >= 0 ? connectedElapsed - startElapsed : -1);
+        session.setTimeToFirstAudioMs(timeToFirstAudioMs);
+        session.setRebufferCount(rebufferCount);
+        session.setRebufferMs(rebufferMs);
+        session.setDurationMs(now - startElapsed);
+        session.setBytesTransferred(bytesTransferred.get());
+        session.setErrorCount(errorCount);
+        session.setLastErrorCode(lastErrorCode);
+        session.setPrewarmed(prewarmed);
+        session.setPeakBufferBytes(loadControl.getPeakBytesAllocated());
+        return session;
+    }
+    
+    @Override
+    public void onPlaybackStateChanged(EventTime eventTime, int state) {
+        if (!active) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (state == Player.STATE_BUFFERING && hasBeenReady && bufferingSince < 0) {
+            bufferingSince = now;
+            rebufferCount++;
+        } else if (state == Player.STATE_READY) {
+            hasBeenReady = true;
+            if (bufferingSince >= 0) {
+                rebufferMs += now - bufferingSince;
+                bufferingSince = -1;
+            }
+        }
+    }
+    
+    @Override
+    public void onAudioPositionAdvancing(EventTime eventTime, long playoutStartSystemTimeMs) {
+        if (active && timeToFirstAudioMs < 0) {
+            timeToFirstAudioMs = Math.max(0, playoutStartSystemTimeMs - startedAt);
+        }
+    }
+    
+    @Override
+    public void onPlayerError(EventTime eventTime, PlaybackException error) {
+        if (active) {
+            errorCount++;
+            lastErrorCode = error.errorCode;
+        }
+    }
+    
+    @Override
+    public void onTransferInitializing(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+    
+    @Override
+    public void onTransferStart(DataSource source, DataSpec dataSpec, boolean isNetwork) {
+        if (active && isNetwork && connectedElapsed < 0) {
+            connectedElapsed = SystemClock.elapsedRealtime();
+        }
+    }
+    
+    @Override
+    public void onBytesTransferred(DataSource source, DataSpec dataSpec, boolean isNetwork, int bytesTransferred) {
+        if (active && isNetwork) {
+            this.bytesTransferred.addAndGet(bytesTransferred);
+        }
+    }
+    
+    @Override
+    public void onTransferEnd(DataSource source, DataSpec dataSpec, boolean isNetwork) {}
+}
@@ -1,65 +1,183 @@
 package com.usradio.app.player;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import com.google.android.exoplayer2.ExoPlayer;
 import com.google.android.exoplayer2.MediaItem;
 import com.google.android.exoplayer2.PlaybackException;
 import com.google.android.exoplayer2.Player;
+import com.google.android.exoplayer2.analytics.AnalyticsListener;
+import com.google.android.exoplayer2.ext.okhttp.OkHttpDataSource;
+import com.google.android.exoplayer2.source.LoadEventInfo;
+import com.google.android.exoplayer2.source.MediaLoadData;
 import com.google.android.exoplayer2.source.MediaSource;
 import com.google.android.exoplayer2.source.ProgressiveMediaSource;
-import com.google.android.exoplayer2.upstream.DefaultHttpDataSource;
+import com.usradio.app.model.PlaybackSession;
 import com.usradio.app.model.RadioStation;
+import com.usradio.app.network.NetworkStack;
+import com.usradio.app.network.NetworkType;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.WeakHashMap;
+import okhttp3.HttpUrl;
 
 public class RadioPlayer {
     
+    private static final int MAX_RECENT_STATIONS = 3;
+    // How long a trim-memory signal keeps new plays on the small buffer profile
+    private static final long LOW_MEMORY_HOLD_MS = 5 * 60 * 1000;
+    
+    private final Context context;
+    private final StationPrewarmer prewarmer;
+    private final StreamResolver streamResolver;
+    private final PlaybackQosStore qosStore;
+    // Every player, pre-warmed ones included, measures its own session; released players drop out
+    private final Map<ExoPlayer, PlaybackSessionTracker> trackers = new WeakHashMap<>();
+    private final LinkedList<RadioStation> recentStations = new LinkedList<>();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final StreamRecoveryLoop recovery = new StreamRecoveryLoop(new StreamRecovery(new Random()),
+        new StreamRecoveryLoop.Target() {
+            @Override
+            public long getBufferedAheadMs() {
+                return player != null ? player.getTotalBufferedDuration() : 0;
+            }
+            
+            @Override
+            public void switchTo(String endpoint) {
+                if (currentStation != null) {
+                    startPlayback(endpoint);
+                }
+            }
+            
+            @Override
+            public void onGiveUp(String error) {
+                if (stateListener != null) {
+                    stateListener.onPlayerError(error);
+                }
+            }
+        },
+        new StreamRecoveryLoop.Timer() {
+            @Override
+            public long now() {
+                return SystemClock.elapsedRealtime();
+            }
+            
+            @Override
+            public void postDelayed(Runnable task, long delayMs) {
+                handler.postDelayed(task, delayMs);
+            }
+            
+            @Override
+            public void cancel(Runnable task) {
+                handler.removeCallbacks(task);
+            }
+        });
     private ExoPlayer player;
     private RadioStation currentStation;
+    private String currentEndpoint;
+    // One re-resolution per play when the cached endpoint fails
+    private boolean reresolved;
     private PlayerStateListener stateListener;
+    private ActivePlayerListener activePlayerListener;
+    private long lowMemorySince = -1;
     
     public interface PlayerStateListener {
         void onPlayerReady();
         void onPlayerError(String error);
         void onPlaybackStateChanged(boolean isPlaying);
+        // Also after a stop from the notification or a headset
+        void onPlaybackStopped();
     }
     
-    public RadioPlayer(Context context) {
-        player = new ExoPlayer.Builder(context).build();
-        
-        player.addListener(new Player.Listener() {
-            @Override
-            public void onPlaybackStateChanged(int playbackState) {
-                if (stateListener != null) {
-                    switch (playbackState) {
-                        case Player.STATE_READY:
-                            stateListener.onPlayerReady();
-                            break;
-                        case Player.STATE_ENDED:
-                            stateListener.onPlaybackStateChanged(false);
-                            break;
-                    }
-                }
+    // The ExoPlayer instance changes when a pre-warmed player takes over
+    public interface ActivePlayerListener {
+        void onActivePlayerChanged(Player player);
+    }
+    
+    // Moved along with the active player when a pre-warmed one takes over
+    private final Player.Listener playerListener = new Player.Listener() {
+        @Override
+        public void onPlaybackStateChanged(int playbackState) {
+            if (playbackState == Player.STATE_READY) {
+                confirmPlayback();
+                recovery.onReady();
             }
-            
-            @Override
-            public void onIsPlayingChanged(boolean isPlaying) {
-                if (stateListener != null) {
-                    stateListener.onPlaybackStateChanged(isPlaying);
-                }
+            recovery.watchForStall(playbackState == Player.STATE_BUFFERING);
+            // A live stream has no end; the server closed the connection
+            if (playbackState == Player.STATE_ENDED && recovery.hasPlayed() && recover()) {
+                return;
             }
-            
-            @Override
-            public void onPlayerError(PlaybackException error) {
-                if (stateListener != null) {
-                    stateListener.onPlayerError(error.getMessage());
+            if (stateListener != null) {
+                switch (playbackState) {
+                    case Player.STATE_READY:
+                        stateListener.onPlayerReady();
+                        break;
+                    case Player.STATE_ENDED:
+                        stateListener.onPlaybackStateChanged(false);
+                        break;
                 }
             }
-        });
+        }
+        
+        @Override
+        public void onIsPlayingChanged(boolean isPlaying) {
+            if (stateListener != null) {
+                stateListener.onPlaybackStateChanged(isPlaying);
+            }
+        }
+        
+        @Override
+        public void onPlayerError(PlaybackException error) {
+            if (retryWithFreshEndpoint(error.getMessage()) || recover()) {
+                return;
+            }
+            if (stateListener != null) {
+                stateListener.onPlayerError(error.getMessage());
+            }
+        }
+    };
+    
+    // Loader errors the player is still retrying on its own; fatal ones arrive as player errors
+    private final AnalyticsListener loadErrorListener = new AnalyticsListener() {
+        @Override
+        public void onLoadError(EventTime eventTime, LoadEventInfo loadEventInfo, MediaLoadData mediaLoadData,
+                                IOException error, boolean wasCanceled) {
+            if (!wasCanceled && currentStation != null) {
+                recovery.onLoadError();
+            }
+        }
+    };
+    
+    public RadioPlayer(Context context) {
+        this.context = context.getApplicationContext();
+        prewarmer = new StationPrewarmer(this.context, this::createPrewarmPlayer);
+        streamResolver = new StreamResolver(this.context);
+        qosStore = new PlaybackQosStore(this.context);
+        
+        player = buildPlayer();
+        player.addListener(playerListener);
+        player.addAnalyticsListener(loadErrorListener);
     }
     
     public void setPlayerStateListener(PlayerStateListener listener) {
         this.stateListener = listener;
     }
     
+    public void setActivePlayerListener(ActivePlayerListener listener) {
+        this.activePlayerListener = listener;
+    }
+    
+    public Player getPlayer() {
+        return player;
+    }
+    
     public void playStation(RadioStation station) {
         if (station == null || station.getStreamUrl() == null) {
             if (stateListener != null) {
@@ -68,20 +186,79 @@ public class RadioPlayer {
             return;
         }
         
+        finishSession();
         currentStation = station;
+        reresolved = false;
+        recovery.reset(alternatesFor(station));
+        rememberRecent(station);
         
-        DefaultHttpDataSource.Factory dataSourceFactory = new DefaultHttpDataSource.Factory()
-            .setUserAgent("USRadioApp/1.0")
-            .setConnectTimeoutMs(10000)
-            .setReadTimeoutMs(10000);
+        ExoPlayer warm = prewarmer.take(station.getStationUuid());
+        if (warm != null) {
+            currentEndpoint = endpointFor(station);
+            recovery.setCurrent(currentEndpoint);
+            // Grow from the standby buffer to the full one for this stream
+            trackers.get(warm).getLoadControl().configure(station.getBitrate(), station.getCodec(), isLowMemory(), false);
+            trackers.get(warm).begin(station.getStationUuid(), NetworkType.current(context), true,
+                warm.getPlaybackState() == Player.STATE_READY);
+            swapTo(warm);
+            return;
+        }
         
-        MediaItem mediaItem = MediaItem.fromUri(station.getStreamUrl());
-        MediaSource mediaSource = new ProgressiveMediaSource.Factory(dataSourceFactory)
-            .createMediaSource(mediaItem);
+        trackers.get(player).getLoadControl().configure(station.getBitrate(), station.getCodec(), isLowMemory(), false);
+        trackers.get(player).begin(station.getStationUuid(), NetworkType.current(context), false, false);
         
-        player.setMediaSource(mediaSource);
-        player.prepare();
-        player.setPlayWhenReady(true);
+        // A cached endpoint connects in one round trip instead of walking playlists and redirects
+        String cached = streamResolver.getCachedEndpoint(station);
+        if (cached != null) {
+            startPlayback(cached);
+            return;
+        }
+        player.stop();
+        streamResolver.resolve(station, endpoint -> {
+            if (station == currentStation) {
+                startPlayback(endpoint);
+            }
+        });
+    }
+    
+    // Connects and buffers likely next stations so a tap on one of them starts from a prepared source.
+    // Stations without a resolved endpoint are only resolved now and warmed on a later pass.
+    public void prewarm(List<RadioStation> candidates) {
+        List<RadioStation> resolved = new ArrayList<>();
+        for (RadioStation candidate : candidates) {
+            if (currentStation != null && currentStation.getStationUuid().equals(candidate.getStationUuid())) {
+                continue;
+            }
+            if (streamResolver.getCachedEndpoint(candidate) != null) {
+                resolved.add(candidate);
+            } else if (candidate.getStreamUrl() != null) {
+                streamResolver.resolve(candidate, endpoint -> {});
+            }
+        }
+        prewarmer.warm(resolved);
+    }
+    
+    // Drops pre-warmed players and shrinks the active buffer until memory pressure has passed
+    public void trimMemory() {
+        prewarmer.releaseAll();
+        lowMemorySince = SystemClock.elapsedRealtime();
+        if (player != null && currentStation != null) {
+            trackers.get(player).getLoadControl()
+                .configure(currentStation.getBitrate(), currentStation.getCodec(), true, false);
+        }
+    }
+    
+    // Media buffer currently held by the active player
+    public int getBufferedBytes() {
+        return player != null ? trackers.get(player).getLoadControl().getBytesAllocated() : 0;
+    }
+    
+    public PlaybackQosStore getQosStore() {
+        return qosStore;
+    }
+    
+    public List<RadioStation> getRecentStations() {
+        return new ArrayList<>(recentStations);
     }
     
     public void play() {
@@ -93,22 +270,181 @@ public class RadioPlayer {
     }
     
     public void stop() {
+        finishSession();
+        recovery.cancel();
         player.stop();
         currentStation = null;
+        currentEndpoint = null;
+        if (stateListener != null) {
+            stateListener.onPlaybackStopped();
+        }
     }
     
     public boolean isPlaying() {
         return player.isPlaying();
     }
     
+    public boolean isBuffering() {
+        return player.getPlaybackState() == Player.STATE_BUFFERING;
+    }
+    
     public RadioStation getCurrentStation() {
         return currentStation;
     }
     
     public void release() {
+        finishSession();
+        recovery.cancel();
+        prewarmer.releaseAll();
         if (player != null) {
             player.release();
             player = null;
         }
     }
+    
+    private void startPlayback(String endpoint) {
+        currentEndpoint = endpoint;
+        recovery.setCurrent(endpoint);
+        player.setMediaSource(createMediaSource(player, endpoint));
+        player.prepare();
+        player.setPlayWhenReady(true);
+    }
+    
+    private boolean isLowMemory() {
+        return lowMemorySince >= 0 && SystemClock.elapsedRealtime() - lowMemorySince < LOW_MEMORY_HOLD_MS;
+    }
+    
+    private void finishSession() {
+        PlaybackSessionTracker tracker = player != null ? trackers.get(player) : null;
+        PlaybackSession session = tracker != null ? tracker.finish() : null;
+        if (session != null) {
+            recovery.abandon();
+            session.setRecoveryCount(recovery.getRecoveryCount());
+            session.setRecoveredCount(recovery.getRecoveredCount());
+            session.setRecoveryMs(recovery.getRecoveryMs());
+            session.setInPlaceRecoveryCount(recovery.getInPlaceRecoveryCount());
+            session.setSourceSwapCount(recovery.getSourceSwapCount());
+            qosStore.record(session);
+        }
+    }
+    
+    private void confirmPlayback() {
+        if (currentStation != null && !recovery.hasPlayed()) {
+            streamResolver.recordSuccess(currentStation.getStationUuid());
+        }
+    }
+    
+    // The cached endpoint may have moved; resolve the station URL again before reporting an error
+    private boolean retryWithFreshEndpoint(String error) {
+        RadioStation station = currentStation;
+        if (station == null || currentEndpoint == null) {
+            return false;
+        }
+        streamResolver.recordFailure(station.getStationUuid());
+        if (reresolved || recovery.hasPlayed()) {
+            return false;
+        }
+        reresolved = true;
+        String failedEndpoint = currentEndpoint;
+        streamResolver.reresolve(station, endpoint -> {
+            if (station != currentStation) {
+                return;
+            }
+            if (endpoint == null || endpoint.equals(failedEndpoint)) {
+                if (!recover() && stateListener != null) {
+                    stateListener.onPlayerError(error);
+                }
+                return;
+            }
+            startPlayback(endpoint);
+        });
+        return true;
+    }
+    
+    // Reconnects after a drop or a stall: to the same endpoint first, then to the station's other
+    // URLs, with jittered backoff in between. False once every attempt is used up.
+    private boolean recover() {
+        return currentStation != null && currentEndpoint != null && recovery.recover();
+    }
+    
+    // The station's own URLs, minus playlists the player cannot open without the resolver
+    private static List<String> alternatesFor(RadioStation station) {
+        List<String> alternates = new ArrayList<>();
+        for (String url : Arrays.asList(station.getUrlResolved(), station.getUrl())) {
+            HttpUrl parsed = url != null ? HttpUrl.parse(url) : null;
+            if (parsed != null && !StreamResolver.isPlaylist(parsed, null)) {
+                alternates.add(url);
+            }
+        }
+        return alternates;
+    }
+    
+    private void swapTo(ExoPlayer warm) {
+        player.removeListener(playerListener);
+        player.removeAnalyticsListener(loadErrorListener);
+        player.release();
+        player = warm;
+        player.addListener(playerListener);
+        player.addAnalyticsListener(loadErrorListener);
+        player.setVolume(1f);
+        player.setPlayWhenReady(true);
+        if (activePlayerListener != null) {
+            activePlayerListener.onActivePlayerChanged(player);
+        }
+        // Already buffered, so no READY transition will be reported for it
+        if (player.getPlaybackState() == Player.STATE_READY && stateListener != null) {
+            stateListener.onPlayerReady();
+        }
+    }
+    
+    private ExoPlayer createPrewarmPlayer(RadioStation station) {
+        ExoPlayer warm = buildPlayer();
+        // A short standby buffer keeps idle pre-warmed players cheap in memory and bandwidth
+        trackers.get(warm).getLoadControl().configure(station.getBitrate(), station.getCodec(), isLowMemory(), true);
+        warm.setVolume(0f);
+        warm.setMediaSource(createMediaSource(warm, endpointFor(station)));
+        warm.setPlayWhenReady(false);
+        warm.prepare();
+        return warm;
+    }
+    
+    private String endpointFor(RadioStation station) {
+        String cached = streamResolver.getCachedEndpoint(station);
+        return cached != null ? cached : station.getStreamUrl();
+    }
+    
+    private ExoPlayer buildPlayer() {
+        AdaptiveLoadControl loadControl = new AdaptiveLoadControl();
+        ExoPlayer built = new ExoPlayer.Builder(context)
+            .setLoadControl(loadControl)
+            .build();
+        PlaybackSessionTracker tracker = new PlaybackSessionTracker(loadControl);
+        built.addAnalyticsListener(tracker);
+        trackers.put(built, tracker);
+        return built;
+    }
+    
+    private MediaSource createMediaSource(ExoPlayer target, String endpoint) {
+        // Streams share the API's connection pool, so switching stations on one CDN reuses sockets
+        OkHttpDataSource.Factory dataSourceFactory = new OkHttpDataSource.Factory(NetworkStack.getInstance().getStreamClient())
+            .setUserAgent(NetworkStack.USER_AGENT)
+            .setTransferListener(trackers.get(target));
+        MediaItem mediaItem = MediaItem.fromUri(endpoint);
+        return new ProgressiveMediaSource.Factory(dataSourceFactory)
+            .setLoadErrorHandlingPolicy(new ReconnectLoadErrorPolicy())
+            .createMediaSource(mediaItem);
+    }
+    
+    private void rememberRecent(RadioStation station) {
+        for (int i = 0; i < recentStations.size(); i++) {
+            if (recentStations.get(i).getStationUuid().equals(station.getStationUuid())) {
+                recentStations.remove(i);
+                break;
+            }
+        }
+        recentStations.addFirst(station);
+        while (recentStations.size() > MAX_RECENT_STATIONS) {
+            recentStations.removeLast();
+        }
+    }
 }
@@ -0,0 +1,29 @@
+package com.usradio.app.player;
+
+import com.google.android.exoplayer2.C;
+import com.google.android.exoplayer2.upstream.DefaultLoadErrorHandlingPolicy;
+import java.util.Random;
+
+// Reconnects of the stream loader in place. ExoPlayer plays out what it has buffered while the
+// loader reopens the connection, so a short drop is never heard; StreamRecoveryLoop only replaces
+// the source once the buffer is nearly drained or these retries are used up.
+class ReconnectLoadErrorPolicy extends DefaultLoadErrorHandlingPolicy {
+    
+    static final int IN_PLACE_RETRIES = 3;
+    
+    private final Random random = new Random();
+    
+    ReconnectLoadErrorPolicy() {
+        super(IN_PLACE_RETRIES);
+    }
+    
+    // Same errors as the default policy are final (bad content, 404, cleartext blocked); the rest
+    // back off with jitter instead of the default linear second-per-retry
+    @Override
+    public long getRetryDelayMsFor(LoadErrorInfo loadErrorInfo) {
+        if (super.getRetryDelayMsFor(loadErrorInfo) == C.TIME_UNSET) {
+            return C.TIME_UNSET;
+        }
+        return StreamRecovery.backoffMs(loadErrorInfo.errorCount - 1, random);
+    }
+}
@@ -0,0 +1,136 @@
+package com.usradio.app.player;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import com.google.android.exoplayer2.ExoPlayer;
+import com.usradio.app.model.RadioStation;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Keeps a few likely-next stations connected and buffered in muted, paused players.
+// Must be used from the main thread, like the players it holds.
+public class StationPrewarmer {
+    
+    private static final int MAX_PREPARED_UNMETERED = 3;
+    private static final int MAX_PREPARED_METERED = 1;
+    // A paused live stream goes stale and the server may drop the idle connection
+    private static final long MAX_IDLE_MS = 45_000;
+    
+    interface PlayerFactory {
+        ExoPlayer createPrewarmPlayer(RadioStation station);
+    }
+    
+    private static class PreparedStation {
+        final ExoPlayer player;
+        final long preparedAt;
+        
+        PreparedStation(ExoPlayer player, long preparedAt) {
+            this.player = player;
+            this.preparedAt = preparedAt;
+        }
+    }
+    
+    private final Context context;
+    private final PlayerFactory playerFactory;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // Access-ordered, so iteration starts at the least recently used station
+    private final LinkedHashMap<String, PreparedStation> prepared = new LinkedHashMap<>(8, 0.75f, true);
+    private final Runnable expireTask = this::expireIdle;
+    
+    StationPrewarmer(Context context, PlayerFactory playerFactory) {
+        this.context = context.getApplicationContext();
+        this.playerFactory = playerFactory;
+    }
+    
+    public void warm(List<RadioStation> candidates) {
+        int capacity = capacity();
+        int warmed = 0;
+        for (RadioStation station : candidates) {
+            if (warmed >= capacity) {
+                break;
+            }
+            if (station == null || station.getStreamUrl() == null) {
+                continue;
+            }
+            warmed++;
+            if (prepared.get(station.getStationUuid()) != null) {
+                continue;
+            }
+            prepared.put(station.getStationUuid(),
+                new PreparedStation(playerFactory.createPrewarmPlayer(station), SystemClock.elapsedRealtime()));
+        }
+        trimTo(capacity);
+        scheduleExpiry();
+    }
+    
+    // Hands over a prepared player, or null when the station is not warm (or its connection failed)
+    public ExoPlayer take(String stationUuid) {
+        PreparedStation entry = prepared.remove(stationUuid);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.player.getPlayerError() != null
+            || SystemClock.elapsedRealtime() - entry.preparedAt > MAX_IDLE_MS) {
+            entry.player.release();
+            return null;
+        }
+        return entry.player;
+    }
+    
+    public int size() {
+        return prepared.size();
+    }
+    
+    // Under memory pressure drop everything; prewarming is only an optimization
+    public void releaseAll() {
+        trimTo(0);
+        handler.removeCallbacks(expireTask);
+    }
+    
+    private void trimTo(int capacity) {
+        Iterator<Map.Entry<String, PreparedStation>> iterator = prepared.entrySet().iterator();
+        while (prepared.size() > capacity && iterator.hasNext()) {
+            iterator.next().getValue().player.release();
+            iterator.remove();
+        }
+    }
+    
+    private void expireIdle() {
+        long now = SystemClock.elapsedRealtime();
+        Iterator<Map.Entry<String, PreparedStation>> iterator = prepared.entrySet().iterator();
+        while (iterator.hasNext()) {
+            PreparedStation entry = iterator.next().getValue();
+            if (now - entry.preparedAt > MAX_IDLE_MS || entry.player.getPlayerError() != null) {
+                entry.player.release();
+                iterator.remove();
+            }
+        }
+        scheduleExpiry();
+    }
+    
+    private void scheduleExpiry() {
+        handler.removeCallbacks(expireTask);
+        if (!prepared.isEmpty()) {
+            handler.postDelayed(expireTask, MAX_IDLE_MS);
+        }
+    }
+    
+    // Bounded by bandwidth (metered links) and memory (low-RAM devices)
+    private int capacity() {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager != null && activityManager.isLowRamDevice()) {
+            return MAX_PREPARED_METERED;
+        }
+        ConnectivityManager connectivity = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (connectivity != null && connectivity.isActiveNetworkMetered()) {
+            return MAX_PREPARED_METERED;
+        }
+        return MAX_PREPARED_UNMETERED;
+    }
+}
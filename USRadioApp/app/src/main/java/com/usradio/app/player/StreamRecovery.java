@@ -0,0 +1,155 @@
+package com.usradio.app.player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Reconnect plan for one play of a live stream. A drop or stall opens a recovery: the endpoint that
+// was playing is tried again first, then the station's other URLs, with jittered exponential backoff
+// between attempts. Keeps no clock and no thread of its own; the player feeds it events and runs the
+// attempts it hands out.
+final class StreamRecovery {
+    
+    // Buffering this long after audio has played counts as a stall, even without an error
+    static final long STALL_TIMEOUT_MS = 8_000;
+    static final int MAX_ATTEMPTS = 6;
+    static final long BASE_DELAY_MS = 250;
+    static final long MAX_DELAY_MS = 8_000;
+    
+    static final class Attempt {
+        final String endpoint;
+        final long delayMs;
+        // 1-based within the recovery
+        final int number;
+        
+        Attempt(String endpoint, long delayMs, int number) {
+            this.endpoint = endpoint;
+            this.delayMs = delayMs;
+            this.number = number;
+        }
+    }
+    
+    private final Random random;
+    private final List<String> alternates = new ArrayList<>();
+    private String current;
+    // Endpoints to try in the open recovery, in order; null when none is open
+    private List<String> plan;
+    private int attempts;
+    private long failedAt = -1;
+    
+    private int recoveryCount;
+    private int recoveredCount;
+    private long recoveryMs;
+    
+    StreamRecovery(Random random) {
+        this.random = random;
+    }
+    
+    // New play: forgets the counters and takes the URLs to fall back on, in order of preference
+    void reset(List<String> alternates) {
+        this.alternates.clear();
+        for (String alternate : alternates) {
+            if (alternate != null && !alternate.isEmpty() && !this.alternates.contains(alternate)) {
+                this.alternates.add(alternate);
+            }
+        }
+        current = null;
+        plan = null;
+        attempts = 0;
+        failedAt = -1;
+        recoveryCount = 0;
+        recoveredCount = 0;
+        recoveryMs = 0;
+    }
+    
+    // The endpoint now being played
+    void setCurrent(String endpoint) {
+        current = endpoint;
+    }
+    
+    boolean isRecovering() {
+        return plan != null;
+    }
+    
+    // A drop or a stall at now. Before any audio played the endpoint itself is suspect, so only the
+    // alternates are tried. Returns null, and closes the recovery as failed, once the plan is used up.
+    Attempt onFailure(long now, boolean played) {
+        if (plan == null) {
+            plan = planFor(played);
+            attempts = 0;
+            failedAt = now;
+            recoveryCount++;
+        }
+        if (attempts >= plan.size()) {
+            plan = null;
+            failedAt = -1;
+            return null;
+        }
+        String endpoint = plan.get(attempts);
+        long delayMs = backoffMs(attempts, random);
+        attempts++;
+        return new Attempt(endpoint, delayMs, attempts);
+    }
+    
+    // Audio is playing again; returns how long it was out
+    long onRecovered(long now) {
+        if (plan == null) {
+            return 0;
+        }
+        long outage = Math.max(0, now - failedAt);
+        plan = null;
+        failedAt = -1;
+        recoveredCount++;
+        recoveryMs += outage;
+        return outage;
+    }
+    
+    // Stop or station change during a recovery; it counts as not recovered
+    void abandon() {
+        plan = null;
+        failedAt = -1;
+    }
+    
+    int getRecoveryCount() {
+        return recoveryCount;
+    }
+    
+    int getRecoveredCount() {
+        return recoveredCount;
+    }
+    
+    long getRecoveryMs() {
+        return recoveryMs;
+    }
+    
+    // Equal jitter: half the capped exponential step plus a random share of the other half, so
+    // clients cut off together do not all reconnect at the same instant
+    static long backoffMs(int attempt, Random random) {
+        long step = BASE_DELAY_MS << Math.min(attempt, 16);
+        long cap = Math.min(MAX_DELAY_MS, step);
+        long half = cap / 2;
+        return half + (long) (random.nextDouble() * (cap - half));
+    }
+    
+    private List<String> planFor(boolean played) {
+        List<String> others = new ArrayList<>();
+        for (String alternate : alternates) {
+            if (!alternate.equals(current)) {
+                others.add(alternate);
+            }
+        }
+        if (!played) {
+            return others;
+        }
+        List<String> endpoints = new ArrayList<>();
+        if (current != null) {
+            endpoints.add(current);
+        }
+        endpoints.addAll(others);
+        List<String> plan = new ArrayList<>();
+        for (int i = 0; i < MAX_ATTEMPTS && !endpoints.isEmpty(); i++) {
+            plan.add(endpoints.get(i % endpoints.size()));
+        }
+        return plan;
+    }
+}
@@ -0,0 +1,197 @@
+package com.usradio.app.player;
+
+import java.util.List;
+
+// Runs StreamRecovery against the active player. A loader error while audio is still buffered is
+// left to the loader, which reconnects in place under ReconnectLoadErrorPolicy as the buffer plays
+// out; the source is only replaced, losing whatever is buffered, once the buffer is nearly drained
+// or playback has already failed or stalled. Main thread only; the player and the clock come in
+// through Target and Timer.
+final class StreamRecoveryLoop {
+    
+    // Below this much audio ahead a reconnect in place can no longer win the race against the drain
+    static final long BUFFER_FLOOR_MS = 1_500;
+    
+    interface Target {
+        // Audio buffered past the playhead
+        long getBufferedAheadMs();
+        
+        // Replaces the media source; the buffer of the old one is dropped
+        void switchTo(String endpoint);
+        
+        // Every attempt of the recovery failed
+        void onGiveUp(String error);
+    }
+    
+    interface Timer {
+        long now();
+        
+        void postDelayed(Runnable task, long delayMs);
+        
+        void cancel(Runnable task);
+    }
+    
+    private final StreamRecovery recovery;
+    private final Target target;
+    private final Timer timer;
+    private final Runnable stallCheck = () -> recoverOrGiveUp("Stream stalled");
+    private final Runnable drainCheck = this::checkDrain;
+    // Scheduled reconnect of an open recovery
+    private Runnable pendingAttempt;
+    private boolean played;
+    private boolean draining;
+    private long lastAheadMs;
+    private long lastCheckAt;
+    
+    private int inPlaceRecoveryCount;
+    private int sourceSwapCount;
+    
+    StreamRecoveryLoop(StreamRecovery recovery, Target target, Timer timer) {
+        this.recovery = recovery;
+        this.target = target;
+        this.timer = timer;
+    }
+    
+    // New play: cancels what is scheduled and forgets the counters
+    void reset(List<String> alternates) {
+        cancel();
+        recovery.reset(alternates);
+        played = false;
+        inPlaceRecoveryCount = 0;
+        sourceSwapCount = 0;
+    }
+    
+    // The endpoint now being played
+    void setCurrent(String endpoint) {
+        recovery.setCurrent(endpoint);
+    }
+    
+    boolean hasPlayed() {
+        return played;
+    }
+    
+    void onReady() {
+        played = true;
+        timer.cancel(stallCheck);
+        cancelPendingAttempt();
+        if (recovery.isRecovering()) {
+            recovery.onRecovered(timer.now());
+        }
+    }
+    
+    // Errors are not the only way a stream dies: a connection can stay open and go silent. Buffering
+    // that outlasts the timeout once audio has played, or during a reconnect, is treated as a drop.
+    void watchForStall(boolean buffering) {
+        timer.cancel(stallCheck);
+        if (buffering && (played || recovery.isRecovering())) {
+            timer.postDelayed(stallCheck, StreamRecovery.STALL_TIMEOUT_MS);
+        }
+    }
+    
+    // A loader error ExoPlayer is retrying on its own. With enough buffered the source is kept and
+    // the drain is watched; without, the reconnect would be heard anyway, so the source is replaced.
+    void onLoadError() {
+        if (!played || draining || pendingAttempt != null) {
+            return;
+        }
+        long aheadMs = target.getBufferedAheadMs();
+        if (aheadMs <= BUFFER_FLOOR_MS) {
+            recoverOrGiveUp("Stream dropped");
+            return;
+        }
+        draining = true;
+        watchDrain(aheadMs);
+    }
+    
+    // Drop, end of stream or fatal error: the buffer is gone, so the source is replaced after the
+    // backoff. False once every attempt is used up.
+    boolean recover() {
+        timer.cancel(stallCheck);
+        stopDrainCheck();
+        StreamRecovery.Attempt attempt = recovery.onFailure(timer.now(), played);
+        if (attempt == null) {
+            return false;
+        }
+        cancelPendingAttempt();
+        pendingAttempt = () -> {
+            pendingAttempt = null;
+            sourceSwapCount++;
+            target.switchTo(attempt.endpoint);
+        };
+        timer.postDelayed(pendingAttempt, attempt.delayMs);
+        return true;
+    }
+    
+    // Stop or station change
+    void cancel() {
+        timer.cancel(stallCheck);
+        stopDrainCheck();
+        cancelPendingAttempt();
+    }
+    
+    // Closes an open recovery as not recovered, before the counters are read for the session
+    void abandon() {
+        cancel();
+        recovery.abandon();
+    }
+    
+    int getRecoveryCount() {
+        return recovery.getRecoveryCount();
+    }
+    
+    int getRecoveredCount() {
+        return recovery.getRecoveredCount();
+    }
+    
+    long getRecoveryMs() {
+        return recovery.getRecoveryMs();
+    }
+    
+    int getInPlaceRecoveryCount() {
+        return inPlaceRecoveryCount;
+    }
+    
+    int getSourceSwapCount() {
+        return sourceSwapCount;
+    }
+    
+    // Next look when the buffer would reach the floor if nothing more arrived
+    private void watchDrain(long aheadMs) {
+        lastAheadMs = aheadMs;
+        lastCheckAt = timer.now();
+        timer.postDelayed(drainCheck, aheadMs - BUFFER_FLOOR_MS);
+    }
+    
+    private void checkDrain() {
+        long aheadMs = target.getBufferedAheadMs();
+        long elapsedMs = timer.now() - lastCheckAt;
+        // A dead loader drains the buffer as fast as it plays; at half that, data is arriving again
+        if (lastAheadMs - aheadMs < elapsedMs / 2) {
+            draining = false;
+            inPlaceRecoveryCount++;
+        } else if (aheadMs > BUFFER_FLOOR_MS) {
+            watchDrain(aheadMs);
+        } else {
+            draining = false;
+            recoverOrGiveUp("Stream dropped");
+        }
+    }
+    
+    private void stopDrainCheck() {
+        timer.cancel(drainCheck);
+        draining = false;
+    }
+    
+    private void cancelPendingAttempt() {
+        if (pendingAttempt != null) {
+            timer.cancel(pendingAttempt);
+            pendingAttempt = null;
+        }
+    }
+    
+    private void recoverOrGiveUp(String error) {
+        if (!recover()) {
+            target.onGiveUp(error);
+        }
+    }
+}
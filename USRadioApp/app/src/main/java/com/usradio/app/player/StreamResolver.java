@@ -0,0 +1,258 @@
+package com.usradio.app.player;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import com.usradio.app.database.AppDatabase;
+import com.usradio.app.database.ResolvedStreamDao;
+import com.usradio.app.model.RadioStation;
+import com.usradio.app.model.ResolvedStream;
+import com.usradio.app.network.NetworkStack;
+import com.usradio.app.task.TaskScheduler;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+// Expands .pls/.m3u playlists and redirect chains into the final stream endpoint once,
+// and remembers it per station so later plays connect straight to it.
+public class StreamResolver {
+    
+    static final long ENDPOINT_TTL_MS = TimeUnit.HOURS.toMillis(24);
+    // Rows nobody played for this long are dropped along with their history
+    private static final long HISTORY_RETENTION_MS = TimeUnit.DAYS.toMillis(30);
+    public static final int MAX_PLAYLIST_DEPTH = 3;
+    private static final long MAX_PLAYLIST_BYTES = 16 * 1024;
+    
+    public interface Callback {
+        // Always called on the main thread; falls back to the station URL when resolution fails
+        void onResolved(String endpoint);
+    }
+    
+    private interface ResolveCallback {
+        void onEndpoint(HttpUrl endpoint);
+        void onFailure(String error);
+    }
+    
+    private final OkHttpClient client;
+    private final ResolvedStreamDao dao;
+    private final Executor dbExecutor = TaskScheduler.getInstance().serial(TaskScheduler.Priority.USER_INITIATED);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<String, ResolvedStream> memory = new ConcurrentHashMap<>();
+    
+    public StreamResolver(Context context) {
+        this(NetworkStack.getInstance().getStreamClient(),
+            AppDatabase.getInstance(context).resolvedStreamDao());
+    }
+    
+    StreamResolver(OkHttpClient client, ResolvedStreamDao dao) {
+        this.client = client;
+        this.dao = dao;
+        dbExecutor.execute(() -> dao.deleteResolvedBefore(System.currentTimeMillis() - HISTORY_RETENTION_MS));
+    }
+    
+    // Memory only, so it is safe on the main thread; null means resolve() has work to do
+    public String getCachedEndpoint(RadioStation station) {
+        ResolvedStream cached = memory.get(station.getStationUuid());
+        if (cached != null && cached.isUsableFor(station.getStreamUrl(), System.currentTimeMillis(), ENDPOINT_TTL_MS)) {
+            return cached.getEndpoint();
+        }
+        return null;
+    }
+    
+    public void resolve(RadioStation station, Callback callback) {
+        String cached = getCachedEndpoint(station);
+        if (cached != null) {
+            callback.onResolved(cached);
+            return;
+        }
+        dbExecutor.execute(() -> {
+            ResolvedStream stored = dao.getResolvedStream(station.getStationUuid());
+            if (stored != null) {
+                memory.put(stored.getStationUuid(), stored);
+                if (stored.isUsableFor(station.getStreamUrl(), System.currentTimeMillis(), ENDPOINT_TTL_MS)) {
+                    mainHandler.post(() -> callback.onResolved(stored.getEndpoint()));
+                    return;
+                }
+            }
+            resolveFromNetwork(station, callback);
+        });
+    }
+    
+    // Skips the cache; used after the cached endpoint failed to play
+    public void reresolve(RadioStation station, Callback callback) {
+        resolveFromNetwork(station, callback);
+    }
+    
+    public void recordSuccess(String stationUuid) {
+        long now = System.currentTimeMillis();
+        ResolvedStream cached = memory.get(stationUuid);
+        if (cached != null) {
+            cached.setSuccessCount(cached.getSuccessCount() + 1);
+            cached.setConsecutiveFailures(0);
+            cached.setLastSuccessAt(now);
+        }
+        dbExecutor.execute(() -> dao.recordSuccess(stationUuid, now));
+    }
+    
+    public void recordFailure(String stationUuid) {
+        long now = System.currentTimeMillis();
+        ResolvedStream cached = memory.get(stationUuid);
+        if (cached != null) {
+            cached.setFailureCount(cached.getFailureCount() + 1);
+            cached.setConsecutiveFailures(cached.getConsecutiveFailures() + 1);
+            cached.setLastFailureAt(now);
+        }
+        dbExecutor.execute(() -> dao.recordFailure(stationUuid, now));
+    }
+    
+    private void resolveFromNetwork(RadioStation station, Callback callback) {
+        String sourceUrl = station.getStreamUrl();
+        HttpUrl url = sourceUrl != null ? HttpUrl.parse(sourceUrl) : null;
+        if (url == null) {
+            mainHandler.post(() -> callback.onResolved(sourceUrl));
+            return;
+        }
+        resolveUrl(url, 0, new ResolveCallback() {
+            @Override
+            public void onEndpoint(HttpUrl endpoint) {
+                store(station, sourceUrl, endpoint.toString());
+                mainHandler.post(() -> callback.onResolved(endpoint.toString()));
+            }
+            
+            @Override
+            public void onFailure(String error) {
+                mainHandler.post(() -> callback.onResolved(sourceUrl));
+            }
+        });
+    }
+    
+    // OkHttp follows the redirects; playlists are expanded here, one request per level
+    private void resolveUrl(HttpUrl url, int depth, ResolveCallback callback) {
+        Request request = new Request.Builder()
+            .url(url)
+            .header("User-Agent", NetworkStack.USER_AGENT)
+            .build();
+        client.newCall(request).enqueue(new okhttp3.Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                callback.onFailure(e.getMessage());
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                try {
+                    if (!response.isSuccessful()) {
+                        callback.onFailure("HTTP " + response.code());
+                        return;
+                    }
+                    HttpUrl next = playlistEntry(response);
+                    if (next == null) {
+                        callback.onEndpoint(response.request().url());
+                    } else if (depth + 1 >= MAX_PLAYLIST_DEPTH) {
+                        callback.onFailure("Playlist nesting too deep");
+                    } else {
+                        resolveUrl(next, depth + 1, callback);
+                    }
+                } catch (IOException e) {
+                    callback.onFailure(e.getMessage());
+                } finally {
+                    response.close();
+                }
+            }
+        });
+    }
+    
+    private void store(RadioStation station, String sourceUrl, String endpoint) {
+        dbExecutor.execute(() -> {
+            ResolvedStream previous = memory.get(station.getStationUuid());
+            if (previous == null) {
+                previous = dao.getResolvedStream(station.getStationUuid());
+            }
+            ResolvedStream resolved = new ResolvedStream();
+            resolved.setStationUuid(station.getStationUuid());
+            resolved.setSourceUrl(sourceUrl);
+            resolved.setEndpoint(endpoint);
+            resolved.setResolvedAt(System.currentTimeMillis());
+            // The history belongs to the station, not to one endpoint
+            if (previous != null) {
+                resolved.setSuccessCount(previous.getSuccessCount());
+                resolved.setFailureCount(previous.getFailureCount());
+                resolved.setLastSuccessAt(previous.getLastSuccessAt());
+                resolved.setLastFailureAt(previous.getLastFailureAt());
+            }
+            dao.upsertResolvedStream(resolved);
+            memory.put(resolved.getStationUuid(), resolved);
+        });
+    }
+    
+    // Where a successful response leads: null when it is the stream itself, or an HLS playlist the
+    // player expands on its own; otherwise the first entry of the .pls/.m3u playlist it carries
+    public static HttpUrl playlistEntry(Response response) throws IOException {
+        HttpUrl finalUrl = response.request().url();
+        ResponseBody body = response.body();
+        if (body == null || !isPlaylist(finalUrl, body.contentType())) {
+            return null;
+        }
+        String playlist = response.peekBody(MAX_PLAYLIST_BYTES).string();
+        if (isHlsPlaylist(playlist)) {
+            return null;
+        }
+        String entry = parsePlaylist(playlist);
+        HttpUrl next = entry != null ? finalUrl.resolve(entry) : null;
+        if (next == null) {
+            throw new IOException("Empty playlist");
+        }
+        return next;
+    }
+    
+    static boolean isPlaylist(HttpUrl url, MediaType contentType) {
+        String path = url.encodedPath().toLowerCase(Locale.US);
+        if (path.endsWith(".pls") || path.endsWith(".m3u") || path.endsWith(".m3u8")) {
+            return true;
+        }
+        if (contentType == null) {
+            return false;
+        }
+        String subtype = contentType.subtype().toLowerCase(Locale.US);
+        return subtype.equals("x-scpls") || subtype.equals("pls+xml")
+            || subtype.equals("x-mpegurl") || subtype.equals("mpegurl")
+            || subtype.equals("vnd.apple.mpegurl");
+    }
+    
+    // HLS is a playlist of segments, which ExoPlayer plays itself
+    static boolean isHlsPlaylist(String playlist) {
+        return playlist.contains("#EXT-X-");
+    }
+    
+    // First stream entry of a PLS ("File1=...") or M3U (first non-comment line) playlist
+    static String parsePlaylist(String playlist) {
+        for (String rawLine : playlist.split("\\r?\\n")) {
+            String line = rawLine.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("[")) {
+                continue;
+            }
+            int separator = line.indexOf('=');
+            if (separator > 0) {
+                String key = line.substring(0, separator).trim().toLowerCase(Locale.US);
+                if (key.startsWith("file")) {
+                    return line.substring(separator + 1).trim();
+                }
+                if (!line.contains("://")) {
+                    continue;
+                }
+            }
+            return line;
+        }
+        return null;
+    }
+}
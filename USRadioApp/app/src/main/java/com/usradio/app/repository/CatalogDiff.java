@@ -0,0 +1,65 @@
+package com.usradio.app.repository;
+
+import com.usradio.app.model.CatalogStation;
+import com.usradio.app.model.RadioStation;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Keyed diff of a fresh server catalog against the stored rows: new rows and rows whose content
+// changed are upserted, rows that only changed rank get their position updated, and rows missing
+// from the server are deleted. One station climbing a rank shifts everything below it, so rank
+// moves are kept apart from content changes.
+public final class CatalogDiff {
+    
+    public final List<CatalogStation> upserts;
+    // Same content, new position; only the position column is written
+    public final List<CatalogStation> moves;
+    public final List<String> deletedUuids;
+    
+    private CatalogDiff(List<CatalogStation> upserts, List<CatalogStation> moves, List<String> deletedUuids) {
+        this.upserts = upserts;
+        this.moves = moves;
+        this.deletedUuids = deletedUuids;
+    }
+    
+    public static CatalogDiff compute(List<CatalogStation> storedRows, List<? extends RadioStation> remote) {
+        Map<String, CatalogStation> stored = new HashMap<>();
+        for (CatalogStation row : storedRows) {
+            stored.put(row.getStationUuid(), row);
+        }
+        
+        List<CatalogStation> upserts = new ArrayList<>();
+        List<CatalogStation> moves = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        int position = 0;
+        for (RadioStation station : remote) {
+            if (!hasStationUuid(station) || !seen.add(station.getStationUuid())) {
+                continue;
+            }
+            CatalogStation row = CatalogStation.from(station, position++);
+            CatalogStation existing = stored.remove(row.getStationUuid());
+            if (existing == null || !existing.hasSameContent(row)) {
+                upserts.add(row);
+            } else if (existing.getPosition() != row.getPosition()) {
+                moves.add(row);
+            }
+        }
+        return new CatalogDiff(upserts, moves, new ArrayList<>(stored.keySet()));
+    }
+    
+    public boolean isEmpty() {
+        return upserts.isEmpty() && moves.isEmpty() && deletedUuids.isEmpty();
+    }
+    
+    public int size() {
+        return upserts.size() + moves.size() + deletedUuids.size();
+    }
+    
+    static boolean hasStationUuid(RadioStation station) {
+        return station != null && station.getStationUuid() != null && !station.getStationUuid().isEmpty();
+    }
+}
@@ -0,0 +1,87 @@
+package com.usradio.app.repository;
+
+import androidx.annotation.NonNull;
+import androidx.paging.ExperimentalPagingApi;
+import androidx.paging.ListenableFutureRemoteMediator;
+import androidx.paging.LoadType;
+import androidx.paging.PagingState;
+import androidx.paging.RemoteMediator;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import com.usradio.app.api.RadioBrowserService;
+import com.usradio.app.database.CatalogDao;
+import com.usradio.app.model.CatalogStation;
+import com.usradio.app.model.RadioStation;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import retrofit2.Response;
+
+// Pulls further catalog pages from the server once the pager runs past the stored rows
+@ExperimentalPagingApi
+public class CatalogRemoteMediator extends ListenableFutureRemoteMediator<Integer, CatalogStation> {
+    
+    public static final int REMOTE_PAGE_SIZE = 200;
+    
+    private final RadioBrowserService service;
+    private final CatalogDao catalogDao;
+    private final Executor executor;
+    private volatile int nextOffset;
+    
+    public CatalogRemoteMediator(RadioBrowserService service, CatalogDao catalogDao, Executor executor) {
+        this.service = service;
+        this.catalogDao = catalogDao;
+        this.executor = executor;
+    }
+    
+    @NonNull
+    @Override
+    public ListenableFuture<InitializeAction> initializeFuture() {
+        // The head of the catalog is revalidated by RadioRepository.refreshCatalog
+        return Futures.immediateFuture(InitializeAction.SKIP_INITIAL_REFRESH);
+    }
+    
+    @NonNull
+    @Override
+    public ListenableFuture<MediatorResult> loadFuture(@NonNull LoadType loadType, @NonNull PagingState<Integer, CatalogStation> state) {
+        switch (loadType) {
+            case PREPEND:
+                return Futures.immediateFuture(new RemoteMediator.MediatorResult.Success(true));
+            case REFRESH:
+                return Futures.immediateFuture(new RemoteMediator.MediatorResult.Success(false));
+            default:
+                ListenableFutureTask<MediatorResult> append = ListenableFutureTask.create(this::appendPage);
+                executor.execute(append);
+                return append;
+        }
+    }
+    
+    private MediatorResult appendPage() {
+        try {
+            // Ranks that were already fetched are never requested twice in a session
+            int offset = Math.max(catalogDao.getMaxPosition() + 1, nextOffset);
+            Response<List<RadioStation>> response = service
+                .getUSAStations(REMOTE_PAGE_SIZE, offset, "votes", true)
+                .execute();
+            if (!response.isSuccessful() || response.body() == null) {
+                return new RemoteMediator.MediatorResult.Error(new IOException("HTTP " + response.code()));
+            }
+            
+            List<RadioStation> page = response.body();
+            List<CatalogStation> rows = new ArrayList<>(page.size());
+            for (int i = 0; i < page.size(); i++) {
+                RadioStation station = page.get(i);
+                if (station != null && station.getStationUuid() != null && !station.getStationUuid().isEmpty()) {
+                    rows.add(CatalogStation.from(station, offset + i));
+                }
+            }
+            catalogDao.insertStationsIfAbsent(rows);
+            nextOffset = offset + page.size();
+            return new RemoteMediator.MediatorResult.Success(page.size() < REMOTE_PAGE_SIZE);
+        } catch (IOException e) {
+            return new RemoteMediator.MediatorResult.Error(e);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.usradio.app.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+// In-memory favorite membership, kept in step with FavoriteDao; reports exactly which stations flipped.
+// Changes come from the writer thread and Room's observers alike, so listeners are called through one
+// executor: the main thread in the app, the calling thread in tests and benchmarks.
+public class FavoritesIndex {
+    
+    private final Set<String> favoriteUuids = ConcurrentHashMap.newKeySet();
+    // Local toggles whose database write has not been confirmed yet
+    private final Map<String, Boolean> pendingWrites = new ConcurrentHashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Executor listenerExecutor;
+    private volatile boolean loaded;
+    
+    public interface Listener {
+        void onFavoritesChanged(Set<String> flippedUuids);
+    }
+    
+    public FavoritesIndex() {
+        this(Runnable::run);
+    }
+    
+    public FavoritesIndex(Executor listenerExecutor) {
+        this.listenerExecutor = listenerExecutor;
+    }
+    
+    public boolean contains(String stationUuid) {
+        return stationUuid != null && favoriteUuids.contains(stationUuid);
+    }
+    
+    public int size() {
+        return favoriteUuids.size();
+    }
+    
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+    
+    // Optimistic toggle, applied before the database write lands
+    public synchronized void set(String stationUuid, boolean favorite) {
+        pendingWrites.put(stationUuid, favorite);
+        boolean flipped = favorite ? favoriteUuids.add(stationUuid) : favoriteUuids.remove(stationUuid);
+        if (flipped) {
+            notifyListeners(Collections.singleton(stationUuid));
+        }
+    }
+    
+    // A toggle made again while its earlier write was in flight stays pending
+    public void confirmWrite(String stationUuid, boolean favorite) {
+        pendingWrites.remove(stationUuid, favorite);
+    }
+    
+    // Initial load; ignored once any snapshot of the table has been applied, since it may be older
+    public synchronized void seed(Collection<String> storedUuids) {
+        if (!loaded) {
+            sync(storedUuids);
+        }
+    }
+    
+    // Reconciles with the stored favorites; pending toggles win over a snapshot taken before their write
+    public synchronized Set<String> sync(Collection<String> storedUuids) {
+        loaded = true;
+        Set<String> stored = new HashSet<>(storedUuids);
+        Set<String> flipped = new HashSet<>();
+        for (String uuid : stored) {
+            Boolean pending = pendingWrites.get(uuid);
+            if ((pending == null || pending) && favoriteUuids.add(uuid)) {
+                flipped.add(uuid);
+            }
+        }
+        for (String uuid : favoriteUuids) {
+            Boolean pending = pendingWrites.get(uuid);
+            if (!stored.contains(uuid) && (pending == null || !pending) && favoriteUuids.remove(uuid)) {
+                flipped.add(uuid);
+            }
+        }
+        if (!flipped.isEmpty()) {
+            notifyListeners(flipped);
+        }
+        return flipped;
+    }
+    
+    private void notifyListeners(Set<String> flipped) {
+        Set<String> unmodifiable = Collections.unmodifiableSet(flipped);
+        listenerExecutor.execute(() -> {
+            for (Listener listener : listeners) {
+                listener.onFavoritesChanged(unmodifiable);
+            }
+        });
+    }
+}
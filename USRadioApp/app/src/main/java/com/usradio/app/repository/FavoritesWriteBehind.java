@@ -0,0 +1,99 @@
+package com.usradio.app.repository;
+
+import com.usradio.app.database.FavoriteDao;
+import com.usradio.app.model.RadioStation;
+import com.usradio.app.task.TaskScheduler;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// Queues favorite toggles and writes each burst in one transaction. Only the last toggle of a
+// station within the window is written, so tapping a star on and off costs a single row at most.
+class FavoritesWriteBehind {
+    
+    // Long enough to absorb a burst of taps, short enough that little is lost if the process dies
+    private static final long FLUSH_DELAY_MS = 500;
+    private static final int MAX_REMOVED_ROWS = 64;
+    
+    private final FavoriteDao favoriteDao;
+    private final FavoritesIndex favoritesIndex;
+    private final TaskScheduler scheduler = TaskScheduler.getInstance();
+    private final Executor executor = scheduler.serial(TaskScheduler.Priority.UI_CRITICAL);
+    // Latest requested state per station; a null station is a removal
+    private final Map<String, RadioStation> pending = new LinkedHashMap<>();
+    // Keeps flushes in order, so an older batch never commits after a newer one
+    private final Object flushLock = new Object();
+    private boolean flushScheduled;
+    // Stored rows of recently removed favorites, guarded by flushLock. The favorites list hands out
+    // partial rows, so a star turned back on from that list is written from the full row kept here.
+    private final Map<String, RadioStation> removedRows = new LinkedHashMap<String, RadioStation>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RadioStation> eldest) {
+            return size() > MAX_REMOVED_ROWS;
+        }
+    };
+    
+    FavoritesWriteBehind(FavoriteDao favoriteDao, FavoritesIndex favoritesIndex) {
+        this.favoriteDao = favoriteDao;
+        this.favoritesIndex = favoritesIndex;
+    }
+    
+    synchronized void insert(RadioStation station) {
+        pending.put(station.getStationUuid(), station);
+        scheduleFlush();
+    }
+    
+    synchronized void delete(String stationUuid) {
+        pending.put(stationUuid, null);
+        scheduleFlush();
+    }
+    
+    // Serialized with the flushes
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+    
+    // Blocking; writes everything queued so far. Bulk operations call this first so they see every toggle.
+    void flush() {
+        synchronized (flushLock) {
+            Map<String, RadioStation> batch;
+            synchronized (this) {
+                flushScheduled = false;
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+            }
+            List<RadioStation> inserts = new ArrayList<>();
+            List<String> deletedUuids = new ArrayList<>();
+            for (Map.Entry<String, RadioStation> entry : batch.entrySet()) {
+                if (entry.getValue() != null) {
+                    RadioStation removed = removedRows.remove(entry.getKey());
+                    inserts.add(removed != null ? removed : entry.getValue());
+                } else {
+                    deletedUuids.add(entry.getKey());
+                }
+            }
+            for (int i = 0; i < deletedUuids.size(); i += FavoriteDao.MAX_BATCH_VARIABLES) {
+                List<String> chunk = deletedUuids.subList(i, Math.min(i + FavoriteDao.MAX_BATCH_VARIABLES, deletedUuids.size()));
+                for (RadioStation row : favoriteDao.getFavoritesSync(chunk)) {
+                    removedRows.put(row.getStationUuid(), row);
+                }
+            }
+            favoriteDao.applyChanges(inserts, deletedUuids);
+            for (Map.Entry<String, RadioStation> entry : batch.entrySet()) {
+                favoritesIndex.confirmWrite(entry.getKey(), entry.getValue() != null);
+            }
+        }
+    }
+    
+    private void scheduleFlush() {
+        if (!flushScheduled) {
+            flushScheduled = true;
+            scheduler.schedule(executor, this::flush, FLUSH_DELAY_MS);
+        }
+    }
+}
@@ -1,60 +1,358 @@
 package com.usradio.app.repository;
 
 import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.NonNull;
+import androidx.annotation.OptIn;
 import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.Transformations;
+import androidx.lifecycle.ViewModel;
+import androidx.paging.ExperimentalPagingApi;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
+import androidx.room.InvalidationTracker;
+import com.google.gson.stream.JsonWriter;
+import com.usradio.app.api.RadioStationTypeAdapter;
 import com.usradio.app.api.RetrofitClient;
+import com.usradio.app.api.StationStreamParser;
 import com.usradio.app.database.AppDatabase;
+import com.usradio.app.database.CatalogDao;
 import com.usradio.app.database.FavoriteDao;
+import com.usradio.app.model.CatalogStation;
+import com.usradio.app.model.CompactCatalog;
+import com.usradio.app.model.FacetRow;
 import com.usradio.app.model.RadioStation;
+import com.usradio.app.search.StationSearchEngine;
+import com.usradio.app.search.StationSearchIndex;
+import com.usradio.app.task.CancellationToken;
+import com.usradio.app.task.TaskScheduler;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import okhttp3.ResponseBody;
+import retrofit2.Response;
 
 public class RadioRepository {
     
+    public static final int CATALOG_SIZE = 1000;
+    public static final int PAGE_SIZE = 50;
+    private static final int STREAM_BATCH_SIZE = 50;
+    // Pages further than this from the viewport are dropped, keeping the list heap bounded
+    private static final int MAX_LOADED_ROWS = PAGE_SIZE * 8;
+    private static final String SYNC_PREFS = "catalog_sync";
+    private static final String KEY_SYNCED_AT = "synced_at";
+    
     private final FavoriteDao favoriteDao;
+    private final CatalogDao catalogDao;
     private final LiveData<List<RadioStation>> allFavorites;
-    private final ExecutorService executorService;
+    // Room's own LiveData would keep the row objects alive next to the compact copy, so the head is
+    // reloaded by hand whenever the table changes
+    private final MutableLiveData<CompactCatalog> catalog = new MutableLiveData<>();
+    private final MutableLiveData<List<FacetRow>> facetRows = new MutableLiveData<>();
+    private final AtomicBoolean catalogReloadQueued = new AtomicBoolean();
+    // Facet rows read so far, on the catalog executor. Appended pages are read on their own; a sync
+    // may move or drop any row, so it marks them for a full read.
+    private List<FacetRow> storedFacetRows = Collections.emptyList();
+    private volatile boolean facetRowsStale = true;
+    // Catalog refreshes and reloads take turns in the background
+    private final Executor catalogExecutor;
+    // Paging appends wait on a scrolling user, so they never queue behind a bulk sync. Appends only
+    // insert missing rows past the stored ranks, and a sync writes the head in one transaction.
+    private final Executor pagingExecutor;
+    private final CancellationToken cancellationToken;
+    private final StationSearchIndex searchIndex = new StationSearchIndex();
+    private final FavoritesIndex favoritesIndex = new FavoritesIndex(new Handler(Looper.getMainLooper())::post);
+    private final FavoritesWriteBehind favoritesWriter;
+    private final StationSearchEngine searchEngine;
+    private final StationHealthMonitor healthMonitor;
+    private final SharedPreferences syncPrefs;
     
-    public RadioRepository(Context context) {
+    // Queued catalog and probe work is dropped once the token is cancelled; favorite writes always land
+    public RadioRepository(Context context, CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
         AppDatabase database = AppDatabase.getInstance(context);
         favoriteDao = database.favoriteDao();
-        allFavorites = favoriteDao.getAllFavorites();
-        executorService = Executors.newSingleThreadExecutor();
+        catalogDao = database.catalogDao();
+        // Every emission from the table reconciles the in-memory membership index
+        allFavorites = Transformations.map(favoriteDao.getAllFavorites(), favorites -> {
+            List<String> uuids = new ArrayList<>(favorites.size());
+            for (RadioStation favorite : favorites) {
+                uuids.add(favorite.getStationUuid());
+            }
+            favoritesIndex.sync(uuids);
+            return favorites;
+        });
+        favoritesWriter = new FavoritesWriteBehind(favoriteDao, favoritesIndex);
+        // Loads membership up front, so isFavorite is right before anything observes the table
+        favoritesWriter.execute(() -> favoritesIndex.seed(favoriteDao.getFavoriteUuidsSync()));
+        catalogExecutor = TaskScheduler.getInstance().serial(TaskScheduler.Priority.BACKGROUND);
+        pagingExecutor = TaskScheduler.getInstance().serial(TaskScheduler.Priority.USER_INITIATED);
+        InvalidationTracker.Observer catalogTableObserver = new InvalidationTracker.Observer("catalog_stations") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                reloadCatalog();
+            }
+        };
+        database.getInvalidationTracker().addObserver(catalogTableObserver);
+        cancellationToken.onCancel(() -> database.getInvalidationTracker().removeObserver(catalogTableObserver));
+        reloadCatalog();
+        searchEngine = new StationSearchEngine(RetrofitClient.getInstance().getRadioBrowserService());
+        healthMonitor = new StationHealthMonitor(context);
+        syncPrefs = context.getSharedPreferences(SYNC_PREFS, Context.MODE_PRIVATE);
     }
     
     public LiveData<List<RadioStation>> getAllFavorites() {
         return allFavorites;
     }
     
+    // Last synced catalog head, read from disk into a compact snapshot
+    public LiveData<CompactCatalog> getCatalog() {
+        return catalog;
+    }
+    
+    // Facet columns of every station on disk, past the head too; grows as the paged list reaches further
+    public LiveData<List<FacetRow>> getFacetRows() {
+        return facetRows;
+    }
+    
+    // Blocking; run off the main thread. Stored rows of the given stations, in catalog order.
+    public CompactCatalog getCatalogStationsSync(List<String> stationUuids) {
+        List<CatalogStation> rows = new ArrayList<>(stationUuids.size());
+        // Uuids come in catalog order, so the ordered batches line up
+        for (int i = 0; i < stationUuids.size(); i += CatalogDao.MAX_BATCH_VARIABLES) {
+            rows.addAll(catalogDao.getStationsSync(
+                stationUuids.subList(i, Math.min(i + CatalogDao.MAX_BATCH_VARIABLES, stationUuids.size()))));
+        }
+        return CompactCatalog.of(rows);
+    }
+    
+    public StationSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+    
+    public StationSearchEngine getSearchEngine() {
+        return searchEngine;
+    }
+    
+    public FavoritesIndex getFavoritesIndex() {
+        return favoritesIndex;
+    }
+    
+    public StationHealthMonitor getHealthMonitor() {
+        return healthMonitor;
+    }
+    
+    public boolean isUnhealthy(String stationUuid) {
+        return healthMonitor.isUnhealthy(stationUuid);
+    }
+    
+    // Full catalog, paged from disk and extended from the server as the list scrolls.
+    // Loaded pages are cached in the view model, so a rotation re-reads nothing.
+    @OptIn(markerClass = ExperimentalPagingApi.class)
+    public LiveData<PagingData<CatalogStation>> getPagedCatalog(ViewModel viewModel) {
+        Pager<Integer, CatalogStation> pager = new Pager<>(
+            new PagingConfig(PAGE_SIZE, PAGE_SIZE, false, PAGE_SIZE * 2, MAX_LOADED_ROWS),
+            null,
+            new CatalogRemoteMediator(RetrofitClient.getInstance().getRadioBrowserService(), catalogDao, pagingExecutor),
+            () -> catalogDao.pagingSource(StationHealthMonitor.UNHEALTHY_BELOW)
+        );
+        return PagingLiveData.cachedIn(PagingLiveData.getLiveData(pager), viewModel);
+    }
+    
+    // Skips the server when the stored catalog was synced recently, e.g. when the process was recreated
+    public void refreshCatalogIfStale(long maxAgeMs, CatalogSyncCallback callback) {
+        long syncedAt = syncPrefs.getLong(KEY_SYNCED_AT, 0);
+        if (System.currentTimeMillis() - syncedAt < maxAgeMs) {
+            callback.onSyncComplete(0);
+            return;
+        }
+        refreshCatalog(callback);
+    }
+    
+    // Revalidates the stored catalog against the server; only changed rows are written
+    public void refreshCatalog(CatalogSyncCallback callback) {
+        catalogExecutor.execute(cancellationToken.guard(() -> {
+            try {
+                int changedRows = streamCatalog();
+                syncPrefs.edit().putLong(KEY_SYNCED_AT, System.currentTimeMillis()).apply();
+                callback.onSyncComplete(changedRows);
+            } catch (IOException e) {
+                callback.onSyncFailed(e.getMessage());
+                return;
+            }
+            // Favorites first, then the catalog in vote order
+            List<RadioStation> probeOrder = new ArrayList<>(favoriteDao.getAllFavoritesSync());
+            probeOrder.addAll(catalogDao.getCatalogHeadSync(CATALOG_SIZE));
+            healthMonitor.probeStale(probeOrder, cancellationToken);
+        }));
+    }
+    
+    private int streamCatalog() throws IOException {
+        // With nothing on disk yet, each decoded batch is written at once so the list can paint early
+        boolean coldStart = catalogDao.getMaxPosition() < 0;
+        Response<ResponseBody> response = RetrofitClient.getInstance()
+            .getRadioBrowserService()
+            .streamUSAStations(CATALOG_SIZE, 0, "votes", true)
+            .execute();
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IOException("HTTP " + response.code());
+        }
+        
+        List<RadioStation> remote = new ArrayList<>(CATALOG_SIZE);
+        try (ResponseBody body = response.body()) {
+            StationStreamParser.parse(body.charStream(), STREAM_BATCH_SIZE, batch -> {
+                if (coldStart) {
+                    List<CatalogStation> rows = new ArrayList<>(batch.size());
+                    for (RadioStation station : batch) {
+                        if (CatalogDiff.hasStationUuid(station)) {
+                            rows.add(CatalogStation.from(station, remote.size() + rows.size()));
+                        }
+                    }
+                    catalogDao.upsertStations(rows);
+                }
+                remote.addAll(batch);
+            });
+        }
+        // Settles positions and removals in a single transaction
+        return syncCatalog(remote);
+    }
+    
+    // A streamed sync invalidates the table once per batch; those reloads collapse into one
+    private void reloadCatalog() {
+        if (!catalogReloadQueued.compareAndSet(false, true)) {
+            return;
+        }
+        catalogExecutor.execute(cancellationToken.guard(() -> {
+            catalogReloadQueued.set(false);
+            catalog.postValue(CompactCatalog.of(catalogDao.getCatalogHeadSync(CATALOG_SIZE)));
+            reloadFacetRows();
+        }));
+    }
+    
+    // Paging appends only add ranks past the last one read, so only those rows are fetched
+    private void reloadFacetRows() {
+        List<FacetRow> rows;
+        if (facetRowsStale) {
+            facetRowsStale = false;
+            rows = catalogDao.getFacetRowsSync(-1);
+        } else {
+            int lastPosition = storedFacetRows.isEmpty() ? -1 : storedFacetRows.get(storedFacetRows.size() - 1).getPosition();
+            List<FacetRow> appended = catalogDao.getFacetRowsSync(lastPosition);
+            if (appended.isEmpty()) {
+                return;
+            }
+            rows = new ArrayList<>(storedFacetRows.size() + appended.size());
+            rows.addAll(storedFacetRows);
+            rows.addAll(appended);
+        }
+        storedFacetRows = Collections.unmodifiableList(rows);
+        facetRows.postValue(storedFacetRows);
+    }
+    
+    private int syncCatalog(List<RadioStation> remote) {
+        CatalogDiff diff = CatalogDiff.compute(catalogDao.getCatalogHeadSync(CATALOG_SIZE), remote);
+        if (!diff.isEmpty()) {
+            facetRowsStale = true;
+            catalogDao.applyChanges(diff.upserts, diff.moves, diff.deletedUuids);
+        }
+        return diff.size();
+    }
+    
+    // Decided on the writer thread, so the stored favorites were loaded before the current state is
+    // read; the callback runs there too
+    public void toggleFavorite(RadioStation station, FavoriteCheckCallback callback) {
+        favoritesWriter.execute(() -> {
+            boolean favorite = !favoritesIndex.contains(station.getStationUuid());
+            station.setFavorite(favorite);
+            if (favorite) {
+                insertFavorite(station);
+            } else {
+                deleteFavoriteById(station.getStationUuid());
+            }
+            callback.onResult(favorite);
+        });
+    }
+    
+    // The star flips at once; the row is written with the rest of the burst
     public void insertFavorite(RadioStation station) {
-        executorService.execute(() -> favoriteDao.insertFavorite(station));
+        favoritesIndex.set(station.getStationUuid(), true);
+        favoritesWriter.insert(station);
     }
     
     public void deleteFavorite(RadioStation station) {
-        executorService.execute(() -> favoriteDao.deleteFavorite(station));
+        deleteFavoriteById(station.getStationUuid());
     }
     
     public void deleteFavoriteById(String stationUuid) {
-        executorService.execute(() -> favoriteDao.deleteFavoriteById(stationUuid));
+        favoritesIndex.set(stationUuid, false);
+        favoritesWriter.delete(stationUuid);
     }
     
     public boolean isFavorite(String stationUuid) {
-        try {
-            return favoriteDao.isFavorite(stationUuid);
-        } catch (Exception e) {
-            return false;
-        }
+        return favoritesIndex.contains(stationUuid);
     }
     
+    // Answered from the index once it has loaded; no query per station
     public void checkFavoriteStatus(RadioStation station, FavoriteCheckCallback callback) {
-        executorService.execute(() -> {
-            boolean isFav = favoriteDao.isFavorite(station.getStationUuid());
-            callback.onResult(isFav);
-        });
+        favoritesWriter.execute(() -> callback.onResult(favoritesIndex.contains(station.getStationUuid())));
+    }
+    
+    // Writes queued favorite toggles now instead of at the end of the burst
+    public void flushFavorites() {
+        favoritesWriter.execute(favoritesWriter::flush);
+    }
+    
+    // Blocking; run off the main thread. Writes the favorites as a radio-browser station array.
+    public int exportFavorites(Writer writer) throws IOException {
+        favoritesWriter.flush();
+        List<RadioStation> favorites = favoriteDao.getAllFavoritesSync();
+        RadioStationTypeAdapter stationAdapter = new RadioStationTypeAdapter();
+        JsonWriter json = new JsonWriter(writer);
+        json.beginArray();
+        for (RadioStation station : favorites) {
+            stationAdapter.write(json, station);
+        }
+        json.endArray();
+        json.flush();
+        return favorites.size();
+    }
+    
+    // Blocking; run off the main thread. Reads an exported array and stores it in one transaction,
+    // either merged into the current favorites or replacing them.
+    public int importFavorites(Reader reader, boolean replaceExisting) throws IOException {
+        List<RadioStation> stations = new ArrayList<>();
+        for (RadioStation station : StationStreamParser.readAll(reader)) {
+            if (CatalogDiff.hasStationUuid(station)) {
+                stations.add(station);
+            }
+        }
+        favoritesWriter.flush();
+        if (replaceExisting) {
+            favoriteDao.replaceAll(stations);
+        } else {
+            favoriteDao.insertFavorites(stations);
+        }
+        favoritesIndex.sync(favoriteDao.getFavoriteUuidsSync());
+        return stations.size();
     }
     
     public interface FavoriteCheckCallback {
         void onResult(boolean isFavorite);
     }
+    
+    public interface CatalogSyncCallback {
+        void onSyncComplete(int changedRows);
+        void onSyncFailed(String error);
+    }
 }
@@ -0,0 +1,266 @@
+package com.usradio.app.repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import com.usradio.app.database.AppDatabase;
+import com.usradio.app.database.StationHealthDao;
+import com.usradio.app.model.RadioStation;
+import com.usradio.app.model.StationHealth;
+import com.usradio.app.network.NetworkStack;
+import com.usradio.app.network.NetworkType;
+import com.usradio.app.player.StreamResolver;
+import com.usradio.app.task.CancellationToken;
+import com.usradio.app.task.TaskScheduler;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+// Probes station streams in the background and keeps a decaying health score per station.
+// Probing is low priority, strictly bounded in concurrency and limited to unmetered networks.
+public class StationHealthMonitor {
+    
+    // Stations scoring below this are sunk in the catalog and badged in the list
+    public static final double UNHEALTHY_BELOW = 0.35;
+    
+    static final int MAX_CONCURRENT_PROBES = 2;
+    static final int MAX_PROBES_PER_RUN = 40;
+    static final long PROBE_INTERVAL_MS = TimeUnit.HOURS.toMillis(6);
+    static final long PROBE_TIMEOUT_MS = 8000;
+    // A stream that takes longer than this to send its first byte counts as slow
+    static final long SLOW_FIRST_BYTE_MS = 2500;
+    
+    static final double OUTCOME_GOOD = 1.0;
+    static final double OUTCOME_SLOW = 0.6;
+    static final double OUTCOME_DEAD = 0.0;
+    // Weight of the newest probe; older probes fade out geometrically
+    private static final double PROBE_WEIGHT = 0.5;
+    // Old evidence also relaxes back towards healthy while a station goes unprobed
+    private static final long RECOVERY_HALF_LIFE_MS = TimeUnit.DAYS.toMillis(3);
+    
+    // Decides whether probing may run right now
+    interface ProbeGate {
+        boolean allowProbing();
+    }
+    
+    interface Clock {
+        long now();
+    }
+    
+    public interface Listener {
+        void onHealthChanged(Set<String> flippedUuids);
+    }
+    
+    private final OkHttpClient probeClient;
+    private final StationHealthDao dao;
+    private final ProbeGate gate;
+    private final Clock clock;
+    // Probes share the background lane with the catalog sync; at most two stream downloads at a time
+    private final Executor probeExecutor = TaskScheduler.getInstance()
+        .limited(TaskScheduler.Priority.BACKGROUND, MAX_CONCURRENT_PROBES);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<String> unhealthyUuids = ConcurrentHashMap.newKeySet();
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    
+    public StationHealthMonitor(Context context) {
+        this(NetworkStack.getInstance().getBaseClient(),
+            AppDatabase.getInstance(context).stationHealthDao(),
+            () -> NetworkType.isUnmetered(context),
+            System::currentTimeMillis);
+    }
+    
+    StationHealthMonitor(OkHttpClient client, StationHealthDao dao, ProbeGate gate, Clock clock) {
+        this.probeClient = client.newBuilder()
+            .callTimeout(PROBE_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+            .build();
+        this.dao = dao;
+        this.gate = gate;
+        this.clock = clock;
+        probeExecutor.execute(() -> {
+            List<String> stored = dao.getUnhealthyUuids(UNHEALTHY_BELOW);
+            unhealthyUuids.addAll(stored);
+            if (!stored.isEmpty()) {
+                notifyListeners(new HashSet<>(stored));
+            }
+        });
+    }
+    
+    public boolean isUnhealthy(String stationUuid) {
+        return stationUuid != null && unhealthyUuids.contains(stationUuid);
+    }
+    
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+    
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+    
+    // Queues probes for stations not checked recently, in the given priority order.
+    // Blocking (reads the probe history); run off the main thread. Probes still queued when the token
+    // is cancelled are skipped.
+    public void probeStale(List<? extends RadioStation> stations, CancellationToken token) {
+        if (!gate.allowProbing()) {
+            return;
+        }
+        Set<String> fresh = new HashSet<>(dao.getProbedSince(clock.now() - PROBE_INTERVAL_MS));
+        Map<String, RadioStation> queued = new LinkedHashMap<>();
+        for (RadioStation station : stations) {
+            if (queued.size() >= MAX_PROBES_PER_RUN) {
+                break;
+            }
+            String uuid = station.getStationUuid();
+            if (station.getStreamUrl() != null && !fresh.contains(uuid) && !queued.containsKey(uuid)
+                && inFlight.add(uuid)) {
+                queued.put(uuid, station);
+            }
+        }
+        if (queued.isEmpty()) {
+            return;
+        }
+        // Written together once the run is over: every write to station_health reloads the paged
+        // catalog, which would otherwise shift under the user's finger once per probe
+        Map<String, ProbeResult> results = new ConcurrentHashMap<>();
+        AtomicInteger remaining = new AtomicInteger(queued.size());
+        for (RadioStation station : queued.values()) {
+            probeExecutor.execute(() -> {
+                try {
+                    // The network may have turned metered since the run was queued
+                    if (!token.isCancelled() && gate.allowProbing()) {
+                        results.put(station.getStationUuid(), probe(station.getStreamUrl()));
+                    }
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        finishRun(queued.keySet(), results);
+                    }
+                }
+            });
+        }
+    }
+    
+    private void finishRun(Set<String> queuedUuids, Map<String, ProbeResult> results) {
+        try {
+            if (!results.isEmpty()) {
+                record(results);
+            }
+        } finally {
+            inFlight.removeAll(queuedUuids);
+        }
+    }
+    
+    static class ProbeResult {
+        final double outcome;
+        final long latencyMs;
+        
+        ProbeResult(double outcome, long latencyMs) {
+            this.outcome = outcome;
+            this.latencyMs = latencyMs;
+        }
+    }
+    
+    // Healthy means a 2xx response that starts delivering audio bytes in time. Playlists are expanded
+    // the way the player does, so a .pls file that loads is not mistaken for a live stream; the time
+    // to the first byte includes those hops.
+    ProbeResult probe(String streamUrl) {
+        HttpUrl url = streamUrl != null ? HttpUrl.parse(streamUrl) : null;
+        if (url == null) {
+            return new ProbeResult(OUTCOME_DEAD, -1);
+        }
+        long start = System.nanoTime();
+        for (int depth = 0; depth < StreamResolver.MAX_PLAYLIST_DEPTH; depth++) {
+            Request request = new Request.Builder()
+                .url(url)
+                .header("User-Agent", NetworkStack.USER_AGENT)
+                .build();
+            try (Response response = probeClient.newCall(request).execute()) {
+                ResponseBody body = response.body();
+                if (!response.isSuccessful() || body == null) {
+                    return new ProbeResult(OUTCOME_DEAD, -1);
+                }
+                HttpUrl next = StreamResolver.playlistEntry(response);
+                if (next != null) {
+                    url = next;
+                    continue;
+                }
+                if (!body.source().request(1)) {
+                    return new ProbeResult(OUTCOME_DEAD, -1);
+                }
+                long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                return new ProbeResult(latencyMs > SLOW_FIRST_BYTE_MS ? OUTCOME_SLOW : OUTCOME_GOOD, latencyMs);
+            } catch (IOException e) {
+                return new ProbeResult(OUTCOME_DEAD, -1);
+            }
+        }
+        // Playlists nested too deep for the player
+        return new ProbeResult(OUTCOME_DEAD, -1);
+    }
+    
+    // Scores one run's probes and stores them with a single write
+    void record(Map<String, ProbeResult> results) {
+        long now = clock.now();
+        List<StationHealth> updated = new ArrayList<>(results.size());
+        for (Map.Entry<String, ProbeResult> entry : results.entrySet()) {
+            ProbeResult result = entry.getValue();
+            StationHealth health = dao.getHealth(entry.getKey());
+            if (health == null) {
+                health = new StationHealth();
+                health.setStationUuid(entry.getKey());
+                health.setLastProbedAt(now);
+            }
+            health.setScore(updatedScore(health.getScore(), now - health.getLastProbedAt(), result.outcome));
+            health.setLastProbedAt(now);
+            if (result.outcome == OUTCOME_DEAD) {
+                health.setConsecutiveFailures(health.getConsecutiveFailures() + 1);
+            } else {
+                health.setConsecutiveFailures(0);
+                health.setLastLatencyMs(result.latencyMs);
+            }
+            updated.add(health);
+        }
+        dao.upsertHealth(updated);
+        
+        Set<String> flipped = new HashSet<>();
+        for (StationHealth health : updated) {
+            String uuid = health.getStationUuid();
+            boolean unhealthy = health.getScore() < UNHEALTHY_BELOW;
+            if (unhealthy ? unhealthyUuids.add(uuid) : unhealthyUuids.remove(uuid)) {
+                flipped.add(uuid);
+            }
+        }
+        if (!flipped.isEmpty()) {
+            notifyListeners(flipped);
+        }
+    }
+    
+    static double updatedScore(double previous, long elapsedMs, double outcome) {
+        double relax = Math.pow(0.5, (double) Math.max(0, elapsedMs) / RECOVERY_HALF_LIFE_MS);
+        double decayed = 1.0 - (1.0 - previous) * relax;
+        return decayed * (1 - PROBE_WEIGHT) + outcome * PROBE_WEIGHT;
+    }
+    
+    private void notifyListeners(Set<String> flipped) {
+        Set<String> unmodifiable = Collections.unmodifiableSet(flipped);
+        mainHandler.post(() -> {
+            for (Listener listener : listeners) {
+                listener.onHealthChanged(unmodifiable);
+            }
+        });
+    }
+}
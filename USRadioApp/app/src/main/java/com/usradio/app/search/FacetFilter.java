@@ -0,0 +1,86 @@
+package com.usradio.app.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Immutable facet selection. Values of one facet are OR'ed, facets are AND'ed:
+// {jazz, blues} x {California} x {128+ kbps} = (jazz OR blues) AND California AND >= 128 kbps.
+public final class FacetFilter {
+    
+    public static final FacetFilter EMPTY = new FacetFilter(new EnumMap<>(StationFacetIndex.Facet.class));
+    
+    private final Map<StationFacetIndex.Facet, Set<String>> selected;
+    
+    private FacetFilter(Map<StationFacetIndex.Facet, Set<String>> selected) {
+        this.selected = selected;
+    }
+    
+    public boolean isEmpty() {
+        return selected.isEmpty();
+    }
+    
+    public boolean isSelected(StationFacetIndex.Facet facet, String value) {
+        Set<String> values = selected.get(facet);
+        return values != null && values.contains(value);
+    }
+    
+    public Set<String> getSelected(StationFacetIndex.Facet facet) {
+        Set<String> values = selected.get(facet);
+        return values != null ? Collections.unmodifiableSet(values) : Collections.<String>emptySet();
+    }
+    
+    public FacetFilter toggle(StationFacetIndex.Facet facet, String value) {
+        Map<StationFacetIndex.Facet, Set<String>> copy = new EnumMap<>(StationFacetIndex.Facet.class);
+        for (Map.Entry<StationFacetIndex.Facet, Set<String>> entry : selected.entrySet()) {
+            copy.put(entry.getKey(), new LinkedHashSet<>(entry.getValue()));
+        }
+        Set<String> values = copy.get(facet);
+        if (values == null) {
+            values = new LinkedHashSet<>();
+            copy.put(facet, values);
+        }
+        if (!values.remove(value)) {
+            values.add(value);
+        }
+        if (values.isEmpty()) {
+            copy.remove(facet);
+        }
+        return new FacetFilter(copy);
+    }
+    
+    // "FACET:value" strings, for the saved instance state
+    public ArrayList<String> toKeys() {
+        ArrayList<String> keys = new ArrayList<>();
+        for (Map.Entry<StationFacetIndex.Facet, Set<String>> entry : selected.entrySet()) {
+            for (String value : entry.getValue()) {
+                keys.add(entry.getKey().name() + ":" + value);
+            }
+        }
+        return keys;
+    }
+    
+    public static FacetFilter fromKeys(List<String> keys) {
+        FacetFilter filter = EMPTY;
+        if (keys == null) {
+            return filter;
+        }
+        for (String key : keys) {
+            int separator = key.indexOf(':');
+            if (separator < 0) {
+                continue;
+            }
+            try {
+                StationFacetIndex.Facet facet = StationFacetIndex.Facet.valueOf(key.substring(0, separator));
+                filter = filter.toggle(facet, key.substring(separator + 1));
+            } catch (IllegalArgumentException e) {
+                // Facet of an older version; dropped
+            }
+        }
+        return filter;
+    }
+}
@@ -0,0 +1,82 @@
+package com.usradio.app.search;
+
+import java.util.Arrays;
+
+// Station ordinals of one facet value. A rare value keeps its ordinals as a sorted int array and a
+// common one as a bitmap, whichever is smaller; the same split a Roaring bitmap makes per container.
+// Filters combine sets into plain long[] bitmaps that cover the whole catalog.
+final class OrdinalSet {
+    
+    // Sorted; null when the set is a bitmap
+    private final int[] ordinals;
+    // Null when the set is an array
+    private final long[] words;
+    private final int cardinality;
+    
+    private OrdinalSet(int[] ordinals, long[] words, int cardinality) {
+        this.ordinals = ordinals;
+        this.words = words;
+        this.cardinality = cardinality;
+    }
+    
+    // Ordinals must be ascending and below universe
+    static OrdinalSet of(int[] ordinals, int universe) {
+        // 32 bits per member against one bit per station
+        if ((long) ordinals.length * 32 < universe) {
+            return new OrdinalSet(ordinals, null, ordinals.length);
+        }
+        long[] words = new long[wordCount(universe)];
+        for (int ordinal : ordinals) {
+            words[ordinal >>> 6] |= 1L << ordinal;
+        }
+        return new OrdinalSet(null, words, ordinals.length);
+    }
+    
+    static int wordCount(int universe) {
+        return (universe + 63) >>> 6;
+    }
+    
+    // All ordinals below universe
+    static long[] full(int universe) {
+        long[] words = new long[wordCount(universe)];
+        Arrays.fill(words, -1L);
+        if ((universe & 63) != 0) {
+            words[words.length - 1] = (1L << universe) - 1;
+        }
+        return words;
+    }
+    
+    int cardinality() {
+        return cardinality;
+    }
+    
+    // target |= this
+    void orInto(long[] target) {
+        if (words != null) {
+            for (int i = 0; i < words.length; i++) {
+                target[i] |= words[i];
+            }
+            return;
+        }
+        for (int ordinal : ordinals) {
+            target[ordinal >>> 6] |= 1L << ordinal;
+        }
+    }
+    
+    // Size of the intersection with mask, without building it
+    int countAnd(long[] mask) {
+        int count = 0;
+        if (words != null) {
+            for (int i = 0; i < words.length; i++) {
+                count += Long.bitCount(words[i] & mask[i]);
+            }
+            return count;
+        }
+        for (int ordinal : ordinals) {
+            if ((mask[ordinal >>> 6] & (1L << ordinal)) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,210 @@
+package com.usradio.app.search;
+
+import android.os.Handler;
+import android.os.Looper;
+import com.usradio.app.model.CompactCatalog;
+import com.usradio.app.model.RadioStation;
+import com.usradio.app.model.Station;
+import com.usradio.app.task.CancellationToken;
+import com.usradio.app.task.TaskScheduler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Runs searches on a worker thread; a newer query bumps the generation so superseded results are never published
+public class SearchController {
+    
+    private static final long DEBOUNCE_MS = 120;
+    
+    private final StationSearchIndex index;
+    private final StationSearchEngine engine;
+    private final ResultListener resultListener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final TaskScheduler scheduler = TaskScheduler.getInstance();
+    private final Executor worker = scheduler.serial(TaskScheduler.Priority.UI_CRITICAL);
+    private final AtomicLong generation = new AtomicLong();
+    private TimingListener timingListener;
+    // Latest inputs, worker-only. Kept so an index dropped by trimMemory can be rebuilt on demand.
+    private CompactCatalog catalog = CompactCatalog.EMPTY;
+    private List<RadioStation> favorites = Collections.emptyList();
+    private boolean indexTrimmed;
+    // UI-thread cost of the latest submit; only the latest generation ever publishes
+    private volatile long lastSubmitNanos;
+    
+    public interface ResultListener {
+        void onResults(String query, List<Station> results);
+    }
+    
+    public interface TimingListener {
+        void onQueryTimed(QueryTiming timing);
+    }
+    
+    public static class QueryTiming {
+        public final String query;
+        public final int resultCount;
+        // Time spent on the UI thread to submit the query and to publish its results
+        public final long submitNanos;
+        public final long publishNanos;
+        public final long searchNanos;
+        public final long totalNanos;
+        
+        QueryTiming(String query, int resultCount, long submitNanos, long publishNanos, long searchNanos, long totalNanos) {
+            this.query = query;
+            this.resultCount = resultCount;
+            this.submitNanos = submitNanos;
+            this.publishNanos = publishNanos;
+            this.searchNanos = searchNanos;
+            this.totalNanos = totalNanos;
+        }
+        
+        public long getUiThreadNanos() {
+            return submitNanos + publishNanos;
+        }
+    }
+    
+    // Nothing is published once the token is cancelled
+    public SearchController(StationSearchIndex index, StationSearchEngine engine, ResultListener resultListener,
+                            CancellationToken cancellationToken) {
+        this.index = index;
+        this.engine = engine;
+        this.resultListener = resultListener;
+        cancellationToken.onCancel(this::cancel);
+    }
+    
+    public void setTimingListener(TimingListener timingListener) {
+        this.timingListener = timingListener;
+    }
+    
+    // Index updates share the worker with searches, so a query always sees the updates submitted before it
+    public void updateCatalog(CompactCatalog catalog) {
+        worker.execute(() -> {
+            this.catalog = catalog;
+            if (!indexTrimmed) {
+                index.updateCatalog(catalog.asList());
+            }
+        });
+    }
+    
+    public void updateFavorites(List<RadioStation> favorites) {
+        List<RadioStation> snapshot = new ArrayList<>(favorites);
+        worker.execute(() -> {
+            this.favorites = snapshot;
+            if (!indexTrimmed) {
+                index.updateFavorites(snapshot);
+            }
+        });
+    }
+    
+    // Gives the n-gram index back under memory pressure; the next query rebuilds it
+    public void trimMemory() {
+        worker.execute(() -> {
+            index.clear();
+            catalog.releaseRows();
+            indexTrimmed = true;
+        });
+    }
+    
+    // Called on the UI thread for every keystroke
+    public void submit(String query, boolean favoritesOnly) {
+        long submittedAt = System.nanoTime();
+        // A superseded query is a no-op once its delay runs out
+        long queryGeneration = generation.incrementAndGet();
+        scheduler.schedule(worker, () -> runQuery(queryGeneration, query, favoritesOnly, submittedAt), DEBOUNCE_MS);
+        lastSubmitNanos = System.nanoTime() - submittedAt;
+    }
+    
+    public void cancel() {
+        generation.incrementAndGet();
+    }
+    
+    private void runQuery(long queryGeneration, String query, boolean favoritesOnly, long submittedAt) {
+        if (queryGeneration != generation.get()) {
+            return;
+        }
+        long searchStart = System.nanoTime();
+        if (indexTrimmed) {
+            index.updateCatalog(catalog.asList());
+            index.updateFavorites(favorites);
+            indexTrimmed = false;
+        }
+        List<Station> local = index.search(query, favoritesOnly);
+        boolean searchServer = !favoritesOnly && query.trim().length() >= StationSearchEngine.MIN_REMOTE_QUERY_LENGTH;
+        List<RadioStation> cached = searchServer ? engine.getCached(query) : null;
+        List<Station> results = cached != null ? merge(local, cached) : local;
+        long searchNanos = System.nanoTime() - searchStart;
+        if (queryGeneration != generation.get()) {
+            return;
+        }
+        
+        mainHandler.post(() -> {
+            if (queryGeneration != generation.get()) {
+                return;
+            }
+            long publishStart = System.nanoTime();
+            resultListener.onResults(query, results);
+            long publishEnd = System.nanoTime();
+            
+            TimingListener listener = timingListener;
+            if (listener != null) {
+                listener.onQueryTimed(new QueryTiming(query, results.size(), lastSubmitNanos,
+                    publishEnd - publishStart, searchNanos, publishEnd - submittedAt));
+            }
+        });
+        
+        // Local matches are already on screen; the national result set is merged in when it arrives
+        if (searchServer && cached == null) {
+            engine.searchRemote(query, new StationSearchEngine.Callback() {
+                @Override
+                public void onRemoteResults(String remoteQuery, List<RadioStation> stations) {
+                    // Arrives on the main thread, possibly after the controller was cancelled
+                    if (queryGeneration != generation.get()) {
+                        return;
+                    }
+                    try {
+                        worker.execute(() -> publishMerged(queryGeneration, query, local, stations));
+                    } catch (RejectedExecutionException e) {
+                        // Worker backlog is full; local results stay as they are
+                    }
+                }
+                
+                @Override
+                public void onRemoteFailed(String remoteQuery, String error) {
+                    // Local results stay as they are
+                }
+            });
+        }
+    }
+    
+    private void publishMerged(long queryGeneration, String query, List<Station> local, List<RadioStation> remote) {
+        if (queryGeneration != generation.get()) {
+            return;
+        }
+        List<Station> merged = merge(local, remote);
+        mainHandler.post(() -> {
+            if (queryGeneration == generation.get()) {
+                resultListener.onResults(query, merged);
+            }
+        });
+    }
+    
+    private static List<Station> merge(List<Station> local, List<RadioStation> remote) {
+        List<Station> merged = new ArrayList<>(local.size() + remote.size());
+        Set<String> seen = new HashSet<>();
+        for (Station station : local) {
+            if (seen.add(station.getStationUuid())) {
+                merged.add(station);
+            }
+        }
+        for (RadioStation station : remote) {
+            if (station.getStationUuid() != null && seen.add(station.getStationUuid())) {
+                merged.add(station);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,240 @@
+package com.usradio.app.search;
+
+import com.usradio.app.model.FacetRow;
+import com.usradio.app.model.Station;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Tag, state, codec and bitrate facets over the facet columns of the stored catalog. Tags are parsed
+// once at build time, every facet value keeps the set of station ordinals carrying it, and a filter
+// or a round of chip counts is a few bitwise passes over the catalog; no row is looked at again.
+public class StationFacetIndex {
+    
+    public enum Facet { TAG, STATE, CODEC, BITRATE }
+    
+    // Bitrate values are lower bounds, so "128" holds every station of 128 kbps and up
+    static final int[] BITRATE_THRESHOLDS = {64, 128, 192, 320};
+    
+    public static class FacetCount {
+        public final Facet facet;
+        public final String value;
+        // Matches if this value were toggled on, given the selections in the other facets
+        public final int count;
+        public final boolean selected;
+        
+        FacetCount(Facet facet, String value, int count, boolean selected) {
+            this.facet = facet;
+            this.value = value;
+            this.count = count;
+            this.selected = selected;
+        }
+    }
+    
+    private final List<FacetRow> rows;
+    private final Map<Facet, Map<String, OrdinalSet>> sets = new EnumMap<>(Facet.class);
+    // Values of each facet, most common first
+    private final Map<Facet, List<String>> valuesByCount = new EnumMap<>(Facet.class);
+    
+    private StationFacetIndex(List<FacetRow> rows) {
+        this.rows = rows;
+    }
+    
+    // Blocking; run off the main thread. The list is kept and must not change afterwards.
+    public static StationFacetIndex build(List<FacetRow> rows) {
+        StationFacetIndex index = new StationFacetIndex(rows);
+        Map<Facet, Map<String, StationSearchIndex.IntList>> ordinals = new EnumMap<>(Facet.class);
+        for (Facet facet : Facet.values()) {
+            ordinals.put(facet, new HashMap<>());
+        }
+        for (int ordinal = 0; ordinal < rows.size(); ordinal++) {
+            FacetRow row = rows.get(ordinal);
+            for (Facet facet : Facet.values()) {
+                for (String value : valuesOf(facet, row.getTags(), row.getState(), row.getCodec(), row.getBitrate())) {
+                    Map<String, StationSearchIndex.IntList> byValue = ordinals.get(facet);
+                    StationSearchIndex.IntList list = byValue.get(value);
+                    if (list == null) {
+                        list = new StationSearchIndex.IntList();
+                        byValue.put(value, list);
+                    }
+                    list.add(ordinal);
+                }
+            }
+        }
+        
+        for (Facet facet : Facet.values()) {
+            Map<String, OrdinalSet> byValue = new HashMap<>();
+            for (Map.Entry<String, StationSearchIndex.IntList> entry : ordinals.get(facet).entrySet()) {
+                byValue.put(entry.getKey(), OrdinalSet.of(entry.getValue().toArray(), rows.size()));
+            }
+            List<String> values = new ArrayList<>(byValue.keySet());
+            if (facet == Facet.BITRATE) {
+                // Thresholds read best in ascending order
+                Collections.sort(values, (a, b) -> Integer.compare(Integer.parseInt(a), Integer.parseInt(b)));
+            } else {
+                Collections.sort(values, (a, b) -> {
+                    int byCount = Integer.compare(byValue.get(b).cardinality(), byValue.get(a).cardinality());
+                    return byCount != 0 ? byCount : a.compareTo(b);
+                });
+            }
+            index.sets.put(facet, byValue);
+            index.valuesByCount.put(facet, values);
+        }
+        return index;
+    }
+    
+    public int size() {
+        return rows.size();
+    }
+    
+    // Uuids of the matching stations, in catalog order
+    public List<String> select(FacetFilter filter) {
+        long[] matches = OrdinalSet.full(rows.size());
+        for (Facet facet : Facet.values()) {
+            long[] mask = facetMask(facet, filter);
+            if (mask != null) {
+                and(matches, mask);
+            }
+        }
+        int count = 0;
+        for (long word : matches) {
+            count += Long.bitCount(word);
+        }
+        List<String> uuids = new ArrayList<>(count);
+        for (int i = 0; i < matches.length; i++) {
+            long word = matches[i];
+            while (word != 0) {
+                uuids.add(rows.get((i << 6) + Long.numberOfTrailingZeros(word)).getStationUuid());
+                word &= word - 1;
+            }
+        }
+        return uuids;
+    }
+    
+    // The most common values of each facet, plus the selected ones, with counts under the current
+    // filter. A value's count applies the other facets only, so alternatives stay visible.
+    public List<FacetCount> counts(FacetFilter filter, int maxPerFacet) {
+        Map<Facet, long[]> masks = new EnumMap<>(Facet.class);
+        for (Facet facet : Facet.values()) {
+            long[] mask = facetMask(facet, filter);
+            if (mask != null) {
+                masks.put(facet, mask);
+            }
+        }
+        
+        List<FacetCount> counts = new ArrayList<>();
+        for (Facet facet : Facet.values()) {
+            long[] others = OrdinalSet.full(rows.size());
+            for (Map.Entry<Facet, long[]> entry : masks.entrySet()) {
+                if (entry.getKey() != facet) {
+                    and(others, entry.getValue());
+                }
+            }
+            Set<String> shown = new LinkedHashSet<>();
+            List<String> values = valuesByCount.get(facet);
+            for (int i = 0; i < values.size() && shown.size() < maxPerFacet; i++) {
+                shown.add(values.get(i));
+            }
+            shown.addAll(filter.getSelected(facet));
+            Map<String, OrdinalSet> byValue = sets.get(facet);
+            for (String value : shown) {
+                OrdinalSet set = byValue.get(value);
+                int count = set != null ? set.countAnd(others) : 0;
+                counts.add(new FacetCount(facet, value, count, filter.isSelected(facet, value)));
+            }
+        }
+        return counts;
+    }
+    
+    // For lists that are not part of the snapshot, such as search results and favorites
+    public static boolean matches(Station station, FacetFilter filter) {
+        for (Facet facet : Facet.values()) {
+            Set<String> selected = filter.getSelected(facet);
+            if (selected.isEmpty()) {
+                continue;
+            }
+            boolean any = false;
+            for (String value : valuesOf(facet, station.getTags(), station.getState(), station.getCodec(),
+                    station.getBitrate())) {
+                if (selected.contains(value)) {
+                    any = true;
+                    break;
+                }
+            }
+            if (!any) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // OR of the selected values of one facet; null when nothing in it is selected
+    private long[] facetMask(Facet facet, FacetFilter filter) {
+        Set<String> selected = filter.getSelected(facet);
+        if (selected.isEmpty()) {
+            return null;
+        }
+        long[] mask = new long[OrdinalSet.wordCount(rows.size())];
+        Map<String, OrdinalSet> byValue = sets.get(facet);
+        for (String value : selected) {
+            OrdinalSet set = byValue.get(value);
+            if (set != null) {
+                set.orInto(mask);
+            }
+        }
+        return mask;
+    }
+    
+    private static void and(long[] target, long[] mask) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] &= mask[i];
+        }
+    }
+    
+    // Normalized facet values of one station: lower-case tags, trimmed state, upper-case codec and
+    // every bitrate threshold the station reaches
+    static List<String> valuesOf(Facet facet, String tags, String state, String codec, int bitrate) {
+        switch (facet) {
+            case TAG:
+                return parseTags(tags);
+            case STATE:
+                return single(state != null ? state.trim() : null);
+            case CODEC:
+                return single(codec != null ? codec.trim().toUpperCase(Locale.ROOT) : null);
+            case BITRATE:
+                List<String> thresholds = new ArrayList<>(BITRATE_THRESHOLDS.length);
+                for (int threshold : BITRATE_THRESHOLDS) {
+                    if (bitrate >= threshold) {
+                        thresholds.add(String.valueOf(threshold));
+                    }
+                }
+                return thresholds;
+            default:
+                return Collections.emptyList();
+        }
+    }
+    
+    private static List<String> parseTags(String tags) {
+        if (tags == null || tags.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> parsed = new ArrayList<>();
+        for (String tag : tags.split(",")) {
+            String normalized = tag.trim().toLowerCase(Locale.ROOT);
+            if (!normalized.isEmpty() && !parsed.contains(normalized)) {
+                parsed.add(normalized);
+            }
+        }
+        return parsed;
+    }
+    
+    private static List<String> single(String value) {
+        return value == null || value.isEmpty() ? Collections.<String>emptyList() : Collections.singletonList(value);
+    }
+}
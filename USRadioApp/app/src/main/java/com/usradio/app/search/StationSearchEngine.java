@@ -0,0 +1,146 @@
+package com.usradio.app.search;
+
+import android.os.SystemClock;
+import com.usradio.app.api.RadioBrowserService;
+import com.usradio.app.model.RadioStation;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import retrofit2.Call;
+import retrofit2.Response;
+
+// Server-side station search with request coalescing and an LRU cache of recent results
+public class StationSearchEngine {
+    
+    public static final int MIN_REMOTE_QUERY_LENGTH = 2;
+    static final int REMOTE_LIMIT = 500;
+    private static final String COUNTRY = "United States";
+    private static final int CACHE_SIZE = 64;
+    private static final long CACHE_TTL_MS = 10 * 60 * 1000;
+    
+    private final RadioBrowserService service;
+    private final Map<String, CachedResult> cache = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private final Map<String, List<Callback>> inFlight = new HashMap<>();
+    
+    public interface Callback {
+        void onRemoteResults(String query, List<RadioStation> stations);
+        void onRemoteFailed(String query, String error);
+    }
+    
+    private static class CachedResult {
+        final List<RadioStation> stations;
+        final long storedAt;
+        
+        CachedResult(List<RadioStation> stations, long storedAt) {
+            this.stations = stations;
+            this.storedAt = storedAt;
+        }
+        
+        // The server matches names by substring, so an untruncated result also answers any longer query
+        boolean isComplete() {
+            return stations.size() < REMOTE_LIMIT;
+        }
+    }
+    
+    public StationSearchEngine(RadioBrowserService service) {
+        this.service = service;
+    }
+    
+    // Answers from the cache when it can; returns null when a round trip is needed
+    public synchronized List<RadioStation> getCached(String query) {
+        String key = normalize(query);
+        long now = SystemClock.elapsedRealtime();
+        CachedResult exact = cache.get(key);
+        if (exact != null && now - exact.storedAt < CACHE_TTL_MS) {
+            return exact.stations;
+        }
+        
+        for (Map.Entry<String, CachedResult> entry : cache.entrySet()) {
+            CachedResult cached = entry.getValue();
+            if (key.contains(entry.getKey()) && cached.isComplete() && now - cached.storedAt < CACHE_TTL_MS) {
+                List<RadioStation> narrowed = new ArrayList<>();
+                for (RadioStation station : cached.stations) {
+                    if (station.getName() != null && station.getName().toLowerCase(Locale.ROOT).contains(key)) {
+                        narrowed.add(station);
+                    }
+                }
+                return narrowed;
+            }
+        }
+        return null;
+    }
+    
+    public void searchRemote(String query, Callback callback) {
+        String key = normalize(query);
+        List<RadioStation> cached = getCached(key);
+        if (cached != null) {
+            callback.onRemoteResults(query, cached);
+            return;
+        }
+        
+        synchronized (this) {
+            // An identical request is already on the wire; wait for its answer instead of sending another
+            List<Callback> waiting = inFlight.get(key);
+            if (waiting != null) {
+                waiting.add(callback);
+                return;
+            }
+            waiting = new ArrayList<>();
+            waiting.add(callback);
+            inFlight.put(key, waiting);
+        }
+        
+        service.searchStations(key, COUNTRY, REMOTE_LIMIT).enqueue(new retrofit2.Callback<List<RadioStation>>() {
+            @Override
+            public void onResponse(Call<List<RadioStation>> call, Response<List<RadioStation>> response) {
+                if (!response.isSuccessful() || response.body() == null) {
+                    fail(key, "HTTP " + response.code());
+                    return;
+                }
+                List<RadioStation> stations = new ArrayList<>(response.body());
+                Collections.sort(stations, (a, b) -> Integer.compare(b.getVotes(), a.getVotes()));
+                List<RadioStation> result = Collections.unmodifiableList(stations);
+                List<Callback> waiting;
+                synchronized (StationSearchEngine.this) {
+                    cache.put(key, new CachedResult(result, SystemClock.elapsedRealtime()));
+                    waiting = inFlight.remove(key);
+                }
+                for (Callback waiter : waiting) {
+                    waiter.onRemoteResults(key, result);
+                }
+            }
+            
+            @Override
+            public void onFailure(Call<List<RadioStation>> call, Throwable t) {
+                fail(key, t.getMessage());
+            }
+        });
+    }
+    
+    public synchronized void clearCache() {
+        cache.clear();
+    }
+    
+    private void fail(String key, String error) {
+        List<Callback> waiting;
+        synchronized (this) {
+            waiting = inFlight.remove(key);
+        }
+        for (Callback waiter : waiting) {
+            waiter.onRemoteFailed(key, error);
+        }
+    }
+    
+    static String normalize(String query) {
+        return query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,293 @@
+package com.usradio.app.search;
+
+import com.usradio.app.model.Station;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// N-gram index over station name, tags and state; a lookup costs the size of the narrowest posting list
+public class StationSearchIndex {
+    
+    private static final int MAX_GRAM = 3;
+    private static final char FIELD_SEPARATOR = '\u0000';
+    // Rank of stations that are indexed but not part of the catalog; they sort last
+    private static final int UNRANKED = Integer.MAX_VALUE;
+    
+    private final List<Station> stations = new ArrayList<>();
+    private final List<String> searchText = new ArrayList<>();
+    private final IntList ranks = new IntList();
+    private final Map<String, Integer> ordinalByUuid = new HashMap<>();
+    private final Map<String, IntList> postings = new HashMap<>();
+    private final BitSet removed = new BitSet();
+    private final BitSet favorites = new BitSet();
+    private final Set<String> favoriteUuids = new HashSet<>();
+    
+    // Applies a new catalog snapshot; only stations whose searchable fields changed are re-indexed
+    public synchronized void updateCatalog(List<? extends Station> catalog) {
+        Set<String> current = new HashSet<>();
+        for (int rank = 0; rank < catalog.size(); rank++) {
+            Station station = catalog.get(rank);
+            if (station.getStationUuid() == null || !current.add(station.getStationUuid())) {
+                continue;
+            }
+            put(station, rank);
+        }
+        
+        List<String> dropped = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : ordinalByUuid.entrySet()) {
+            if (current.contains(entry.getKey())) {
+                continue;
+            }
+            if (favoriteUuids.contains(entry.getKey())) {
+                ranks.set(entry.getValue(), UNRANKED);
+            } else {
+                dropped.add(entry.getKey());
+            }
+        }
+        for (String uuid : dropped) {
+            remove(uuid);
+        }
+        compactIfNeeded();
+    }
+    
+    // Favorites stay searchable even when they are not part of the loaded catalog
+    public synchronized void updateFavorites(Collection<? extends Station> favoriteStations) {
+        Set<String> previous = new HashSet<>(favoriteUuids);
+        favoriteUuids.clear();
+        favorites.clear();
+        for (Station station : favoriteStations) {
+            String uuid = station.getStationUuid();
+            if (uuid == null) {
+                continue;
+            }
+            favoriteUuids.add(uuid);
+            Integer ordinal = ordinalByUuid.get(uuid);
+            if (ordinal == null) {
+                ordinal = add(station, UNRANKED);
+            }
+            favorites.set(ordinal);
+        }
+        
+        // Former favorites that only were indexed because of the favorites list go away with it
+        for (String uuid : previous) {
+            Integer ordinal = ordinalByUuid.get(uuid);
+            if (ordinal != null && !favoriteUuids.contains(uuid) && ranks.get(ordinal) == UNRANKED) {
+                remove(uuid);
+            }
+        }
+        compactIfNeeded();
+    }
+    
+    public synchronized void put(Station station, int rank) {
+        String uuid = station.getStationUuid();
+        String text = buildSearchText(station);
+        Integer ordinal = ordinalByUuid.get(uuid);
+        if (ordinal != null && searchText.get(ordinal).equals(text)) {
+            stations.set(ordinal, station);
+            ranks.set(ordinal, rank);
+            return;
+        }
+        boolean favorite = ordinal != null && favorites.get(ordinal);
+        if (ordinal != null) {
+            remove(uuid);
+        }
+        int added = add(station, rank);
+        if (favorite) {
+            favorites.set(added);
+        }
+    }
+    
+    public synchronized void remove(String stationUuid) {
+        Integer ordinal = ordinalByUuid.remove(stationUuid);
+        if (ordinal != null) {
+            removed.set(ordinal);
+            favorites.clear(ordinal);
+            stations.set(ordinal, null);
+        }
+    }
+    
+    public synchronized List<Station> search(String query, boolean favoritesOnly) {
+        String needle = query == null ? "" : normalize(query.trim());
+        if (needle.isEmpty()) {
+            return Collections.emptyList();
+        }
+        
+        List<Integer> matches = new ArrayList<>();
+        if (needle.length() <= MAX_GRAM) {
+            // Every gram this short was indexed directly, so its posting list is the exact answer
+            IntList posting = postings.get(needle);
+            if (posting != null) {
+                for (int i = 0; i < posting.size(); i++) {
+                    collect(posting.get(i), favoritesOnly, matches);
+                }
+            }
+        } else {
+            IntList narrowest = null;
+            for (int i = 0; i + MAX_GRAM <= needle.length(); i++) {
+                IntList posting = postings.get(needle.substring(i, i + MAX_GRAM));
+                if (posting == null) {
+                    return Collections.emptyList();
+                }
+                if (narrowest == null || posting.size() < narrowest.size()) {
+                    narrowest = posting;
+                }
+            }
+            for (int i = 0; i < narrowest.size(); i++) {
+                int ordinal = narrowest.get(i);
+                if (!removed.get(ordinal) && searchText.get(ordinal).contains(needle)) {
+                    collect(ordinal, favoritesOnly, matches);
+                }
+            }
+        }
+        
+        Collections.sort(matches, (a, b) -> {
+            int byRank = Integer.compare(ranks.get(a), ranks.get(b));
+            return byRank != 0 ? byRank : searchText.get(a).compareTo(searchText.get(b));
+        });
+        List<Station> results = new ArrayList<>(matches.size());
+        for (int ordinal : matches) {
+            results.add(stations.get(ordinal));
+        }
+        return results;
+    }
+    
+    // Forgets every station; the owner feeds the index again before it is searched
+    public synchronized void clear() {
+        stations.clear();
+        searchText.clear();
+        ranks.clear();
+        ordinalByUuid.clear();
+        postings.clear();
+        removed.clear();
+        favorites.clear();
+        favoriteUuids.clear();
+    }
+    
+    public synchronized int size() {
+        return ordinalByUuid.size();
+    }
+    
+    private void collect(int ordinal, boolean favoritesOnly, List<Integer> matches) {
+        if (removed.get(ordinal) || (favoritesOnly && !favorites.get(ordinal))) {
+            return;
+        }
+        matches.add(ordinal);
+    }
+    
+    private int add(Station station, int rank) {
+        int ordinal = stations.size();
+        String text = buildSearchText(station);
+        stations.add(station);
+        searchText.add(text);
+        ranks.add(rank);
+        ordinalByUuid.put(station.getStationUuid(), ordinal);
+        
+        Set<String> grams = new HashSet<>();
+        int fieldStart = 0;
+        for (int end = 0; end <= text.length(); end++) {
+            if (end < text.length() && text.charAt(end) != FIELD_SEPARATOR) {
+                continue;
+            }
+            for (int i = fieldStart; i < end; i++) {
+                for (int length = 1; length <= MAX_GRAM && i + length <= end; length++) {
+                    grams.add(text.substring(i, i + length));
+                }
+            }
+            fieldStart = end + 1;
+        }
+        for (String gram : grams) {
+            IntList posting = postings.get(gram);
+            if (posting == null) {
+                posting = new IntList();
+                postings.put(gram, posting);
+            }
+            posting.add(ordinal);
+        }
+        return ordinal;
+    }
+    
+    // Rebuilds once removed ordinals outnumber live ones, so stale postings never dominate a lookup
+    private void compactIfNeeded() {
+        int dead = removed.cardinality();
+        if (dead <= ordinalByUuid.size()) {
+            return;
+        }
+        List<Station> live = new ArrayList<>();
+        IntList liveRanks = new IntList();
+        BitSet liveFavorites = new BitSet();
+        for (int ordinal = 0; ordinal < stations.size(); ordinal++) {
+            if (!removed.get(ordinal)) {
+                if (favorites.get(ordinal)) {
+                    liveFavorites.set(live.size());
+                }
+                live.add(stations.get(ordinal));
+                liveRanks.add(ranks.get(ordinal));
+            }
+        }
+        stations.clear();
+        searchText.clear();
+        ranks.clear();
+        ordinalByUuid.clear();
+        postings.clear();
+        removed.clear();
+        favorites.clear();
+        for (int i = 0; i < live.size(); i++) {
+            add(live.get(i), liveRanks.get(i));
+        }
+        favorites.or(liveFavorites);
+    }
+    
+    private static String buildSearchText(Station station) {
+        return normalize(station.getName()) + FIELD_SEPARATOR
+            + normalize(station.getTags()) + FIELD_SEPARATOR
+            + normalize(station.getState());
+    }
+    
+    static String normalize(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+    
+    // Growable int array, avoids boxing in posting lists
+    static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+        
+        void add(int value) {
+            if (size == values.length) {
+                int[] grown = new int[size * 2];
+                System.arraycopy(values, 0, grown, 0, size);
+                values = grown;
+            }
+            values[size++] = value;
+        }
+        
+        int get(int index) {
+            return values[index];
+        }
+        
+        void set(int index, int value) {
+            values[index] = value;
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        int[] toArray() {
+            int[] copy = new int[size];
+            System.arraycopy(values, 0, copy, 0, size);
+            return copy;
+        }
+        
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.usradio.app.task;
+
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Cancels queued work when its owner goes away. Tasks wrapped by guard() that have not started
+// yet are skipped; long-running tasks can poll isCancelled() between steps.
+public final class CancellationToken {
+    
+    private final List<Runnable> cancelListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+    
+    public CancellationToken() {}
+    
+    // Cancelled when the lifecycle is destroyed. Call on the main thread, like addObserver.
+    public static CancellationToken bindTo(Lifecycle lifecycle) {
+        CancellationToken token = new CancellationToken();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            token.cancel();
+            return token;
+        }
+        lifecycle.addObserver((LifecycleEventObserver) (source, event) -> {
+            if (event == Lifecycle.Event.ON_DESTROY) {
+                token.cancel();
+            }
+        });
+        return token;
+    }
+    
+    public boolean isCancelled() {
+        return cancelled;
+    }
+    
+    public void cancel() {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+        }
+        for (Runnable listener : cancelListeners) {
+            listener.run();
+        }
+        cancelListeners.clear();
+    }
+    
+    // Runs at once if the token is already cancelled
+    public void onCancel(Runnable listener) {
+        synchronized (this) {
+            if (!cancelled) {
+                cancelListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+    
+    public Runnable guard(Runnable task) {
+        return () -> {
+            if (!cancelled) {
+                task.run();
+            }
+        };
+    }
+}
@@ -0,0 +1,93 @@
+package com.usradio.app.task;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// Runs at most maxConcurrent of its tasks at a time on a lane's threads, in submission order.
+// With maxConcurrent 1 it replaces a single-thread executor without owning a thread.
+final class LimitedExecutor implements Executor {
+    
+    interface Retry {
+        void later(Runnable task);
+    }
+    
+    private final TaskScheduler.Lane lane;
+    private final int maxConcurrent;
+    private final int capacity;
+    private final Retry retry;
+    private final ArrayDeque<Runnable> backlog = new ArrayDeque<>();
+    private int running;
+    private boolean drainScheduled;
+    
+    LimitedExecutor(TaskScheduler.Lane lane, int maxConcurrent, int capacity, Retry retry) {
+        this.lane = lane;
+        this.maxConcurrent = maxConcurrent;
+        this.capacity = capacity;
+        this.retry = retry;
+    }
+    
+    @Override
+    public void execute(Runnable task) {
+        synchronized (this) {
+            while (backlog.size() >= capacity) {
+                lane.awaitRoom(this);
+            }
+            backlog.add(lane.timed(task));
+        }
+        drain();
+    }
+    
+    // Hands tasks to the lane outside the lock, since the lane may block the caller when full
+    private void drain() {
+        while (true) {
+            Runnable next;
+            synchronized (this) {
+                if (running >= maxConcurrent || backlog.isEmpty()) {
+                    return;
+                }
+                next = backlog.poll();
+                running++;
+                notifyAll();
+            }
+            try {
+                lane.dispatch(() -> {
+                    try {
+                        next.run();
+                    } finally {
+                        finished();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Only the main and timer threads and the lane's own workers are refused; the task
+                // stays first in line. With none of ours running, no finishing task would drain
+                // again, so one is scheduled.
+                boolean schedule;
+                synchronized (this) {
+                    running--;
+                    backlog.addFirst(next);
+                    schedule = running == 0 && !drainScheduled;
+                    drainScheduled |= schedule;
+                }
+                if (schedule) {
+                    retry.later(this::scheduledDrain);
+                }
+                return;
+            }
+        }
+    }
+    
+    private void scheduledDrain() {
+        synchronized (this) {
+            drainScheduled = false;
+        }
+        drain();
+    }
+    
+    private void finished() {
+        synchronized (this) {
+            running--;
+        }
+        drain();
+    }
+}
@@ -0,0 +1,238 @@
+package com.usradio.app.task;
+
+import android.os.Looper;
+import android.os.Process;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+// App-wide home for background work. Each priority lane has its own threads and bounded queue,
+// so a catalog refresh or a slow stream probe can never hold up a favorite toggle or a search.
+public final class TaskScheduler {
+    
+    public enum Priority {
+        // The user is waiting on it right now: favorite writes, search
+        UI_CRITICAL("ui", 2, 128, Process.THREAD_PRIORITY_DEFAULT),
+        // Started by the user but not needed for the next frame: stream lookups
+        USER_INITIATED("user", 2, 128, Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE),
+        // Catalog sync, health probes, QoS records, mirror probing
+        BACKGROUND("background", 3, 256, Process.THREAD_PRIORITY_BACKGROUND);
+        
+        final String threadName;
+        final int threads;
+        final int queueCapacity;
+        final int threadPriority;
+        
+        Priority(String threadName, int threads, int queueCapacity, int threadPriority) {
+            this.threadName = threadName;
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+            this.threadPriority = threadPriority;
+        }
+    }
+    
+    public static class LaneStats {
+        public final Priority priority;
+        // Waiting in the lane or in one of its serial/limited executors
+        public final int queued;
+        public final int running;
+        public final long started;
+        public final long rejected;
+        public final long averageWaitMs;
+        public final long maxWaitMs;
+        
+        LaneStats(Priority priority, int queued, int running, long started, long rejected, long averageWaitMs,
+                  long maxWaitMs) {
+            this.priority = priority;
+            this.queued = queued;
+            this.running = running;
+            this.started = started;
+            this.rejected = rejected;
+            this.averageWaitMs = averageWaitMs;
+            this.maxWaitMs = maxWaitMs;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: queued=%d running=%d started=%d rejected=%d wait avg/max=%d/%d ms",
+                priority, queued, running, started, rejected, averageWaitMs, maxWaitMs);
+        }
+    }
+    
+    // How soon a hand-off refused by a full lane is tried again
+    static final long RETRY_DELAY_MS = 50;
+    
+    private static TaskScheduler instance;
+    
+    // Refused like the main thread: if it blocked on one full lane, every delayed task would wait
+    private volatile Thread timerThread;
+    private final Map<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+    // Only counts down delays; the delayed tasks themselves run on their lane
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "task-timer");
+        thread.setDaemon(true);
+        timerThread = thread;
+        return thread;
+    });
+    
+    // callerMayBlock tells whether the calling thread may wait for room in a full lane; the timer thread
+    // and a lane's own workers never do
+    TaskScheduler(BooleanSupplier callerMayBlock) {
+        BooleanSupplier mayBlock = () -> Thread.currentThread() != timerThread && callerMayBlock.getAsBoolean();
+        for (Priority priority : Priority.values()) {
+            lanes.put(priority, new Lane(priority, mayBlock));
+        }
+    }
+    
+    public static synchronized TaskScheduler getInstance() {
+        if (instance == null) {
+            instance = new TaskScheduler(() -> Looper.myLooper() != Looper.getMainLooper());
+        }
+        return instance;
+    }
+    
+    public Executor executor(Priority priority) {
+        return lanes.get(priority);
+    }
+    
+    // Tasks run one at a time and in order, like a single-thread executor
+    public Executor serial(Priority priority) {
+        return limited(priority, 1);
+    }
+    
+    public Executor limited(Priority priority, int maxConcurrent) {
+        Lane lane = lanes.get(priority);
+        return new LimitedExecutor(lane, maxConcurrent, priority.queueCapacity, this::retrySoon);
+    }
+    
+    public void schedule(Executor executor, Runnable task, long delayMs) {
+        timer.schedule(() -> handOff(executor, task), delayMs, TimeUnit.MILLISECONDS);
+    }
+    
+    // A full lane refuses the timer thread; the task waits on the timer instead, and the rejection
+    // is counted by the lane each time
+    private void handOff(Executor executor, Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            retrySoon(() -> handOff(executor, task));
+        }
+    }
+    
+    void retrySoon(Runnable task) {
+        timer.schedule(task, RETRY_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+    
+    public LaneStats getStats(Priority priority) {
+        return lanes.get(priority).stats();
+    }
+    
+    static final class Lane implements Executor {
+        // The lane whose worker the current thread is, if any
+        private static final ThreadLocal<Lane> CURRENT = new ThreadLocal<>();
+        
+        private final Priority priority;
+        private final BooleanSupplier callerMayBlock;
+        private final ThreadPoolExecutor pool;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong started = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalWaitNanos = new AtomicLong();
+        private final AtomicLong maxWaitNanos = new AtomicLong();
+        
+        Lane(Priority priority, BooleanSupplier callerMayBlock) {
+            this.priority = priority;
+            this.callerMayBlock = callerMayBlock;
+            AtomicInteger threadCount = new AtomicInteger();
+            pool = new ThreadPoolExecutor(priority.threads, priority.threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(priority.queueCapacity),
+                runnable -> new Thread(() -> {
+                    Process.setThreadPriority(priority.threadPriority);
+                    CURRENT.set(this);
+                    runnable.run();
+                }, "task-" + priority.threadName + "-" + threadCount.incrementAndGet()),
+                this::onQueueFull);
+            pool.allowCoreThreadTimeOut(true);
+        }
+        
+        @Override
+        public void execute(Runnable task) {
+            try {
+                dispatch(timed(task));
+            } catch (RejectedExecutionException e) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                throw e;
+            }
+        }
+        
+        void dispatch(Runnable task) {
+            pool.execute(task);
+        }
+        
+        // Counts the task as queued from now until it starts
+        Runnable timed(Runnable task) {
+            long queuedAt = System.nanoTime();
+            queued.incrementAndGet();
+            return () -> {
+                long waitNanos = System.nanoTime() - queuedAt;
+                queued.decrementAndGet();
+                started.incrementAndGet();
+                totalWaitNanos.addAndGet(waitNanos);
+                maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+                task.run();
+            };
+        }
+        
+        // The main and timer threads are refused instead of stalling. So are this lane's own workers:
+        // room only frees up when a worker takes the next task, so they would wait on themselves.
+        boolean mustNotBlock() {
+            return CURRENT.get() == this || !callerMayBlock.getAsBoolean();
+        }
+        
+        // Backpressure: other threads wait for room. Must be called holding the monitor that is
+        // notified when room frees up.
+        void awaitRoom(Object monitor) {
+            if (mustNotBlock()) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException(priority + " queue is full");
+            }
+            try {
+                monitor.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException(e);
+            }
+        }
+        
+        private void onQueueFull(Runnable task, ThreadPoolExecutor executor) {
+            if (mustNotBlock()) {
+                throw new RejectedExecutionException(priority + " queue is full");
+            }
+            try {
+                executor.getQueue().put(task);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException(e);
+            }
+        }
+        
+        LaneStats stats() {
+            long startedCount = started.get();
+            long averageWaitNanos = startedCount > 0 ? totalWaitNanos.get() / startedCount : 0;
+            return new LaneStats(priority, queued.get(), pool.getActiveCount(), startedCount, rejected.get(),
+                TimeUnit.NANOSECONDS.toMillis(averageWaitNanos), TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+        }
+    }
+}
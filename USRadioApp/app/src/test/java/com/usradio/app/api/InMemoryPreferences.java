@@ -0,0 +1,143 @@
+package com.usradio.app.api;
+
+import android.content.SharedPreferences;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// SharedPreferences backed by a map, so persistence can be checked without a device
+class InMemoryPreferences implements SharedPreferences {
+    
+    private final Map<String, Object> values = new HashMap<>();
+    
+    @Override
+    public Map<String, ?> getAll() {
+        return new HashMap<>(values);
+    }
+    
+    @Override
+    public String getString(String key, String defValue) {
+        Object value = values.get(key);
+        return value != null ? (String) value : defValue;
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Override
+    public Set<String> getStringSet(String key, Set<String> defValues) {
+        Object value = values.get(key);
+        return value != null ? (Set<String>) value : defValues;
+    }
+    
+    @Override
+    public int getInt(String key, int defValue) {
+        Object value = values.get(key);
+        return value != null ? (Integer) value : defValue;
+    }
+    
+    @Override
+    public long getLong(String key, long defValue) {
+        Object value = values.get(key);
+        return value != null ? (Long) value : defValue;
+    }
+    
+    @Override
+    public float getFloat(String key, float defValue) {
+        Object value = values.get(key);
+        return value != null ? (Float) value : defValue;
+    }
+    
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        Object value = values.get(key);
+        return value != null ? (Boolean) value : defValue;
+    }
+    
+    @Override
+    public boolean contains(String key) {
+        return values.containsKey(key);
+    }
+    
+    @Override
+    public Editor edit() {
+        return new InMemoryEditor();
+    }
+    
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {}
+    
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {}
+    
+    private class InMemoryEditor implements Editor {
+        private final Map<String, Object> changes = new HashMap<>();
+        private boolean clear;
+        
+        @Override
+        public Editor putString(String key, String value) {
+            changes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public Editor putStringSet(String key, Set<String> values) {
+            changes.put(key, values);
+            return this;
+        }
+        
+        @Override
+        public Editor putInt(String key, int value) {
+            changes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public Editor putLong(String key, long value) {
+            changes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public Editor putFloat(String key, float value) {
+            changes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            changes.put(key, value);
+            return this;
+        }
+        
+        @Override
+        public Editor remove(String key) {
+            changes.put(key, null);
+            return this;
+        }
+        
+        @Override
+        public Editor clear() {
+            clear = true;
+            return this;
+        }
+        
+        @Override
+        public boolean commit() {
+            apply();
+            return true;
+        }
+        
+        @Override
+        public void apply() {
+            if (clear) {
+                values.clear();
+            }
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                if (change.getValue() == null) {
+                    values.remove(change.getKey());
+                } else {
+                    values.put(change.getKey(), change.getValue());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.usradio.app.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MirrorPoolTest {
+    
+    private final MockWebServer first = new MockWebServer();
+    private final MockWebServer second = new MockWebServer();
+    private final MockWebServer third = new MockWebServer();
+    private final AtomicLong clock = new AtomicLong();
+    private final OkHttpClient client = new OkHttpClient();
+    private List<HttpUrl> mirrors;
+    
+    @Before
+    public void setUp() throws IOException {
+        first.start();
+        second.start();
+        third.start();
+        mirrors = Arrays.asList(first.url("/"), second.url("/"), third.url("/"));
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        first.shutdown();
+        second.shutdown();
+        third.shutdown();
+    }
+    
+    @Test
+    public void probePinsTheFastestMirrorAndRanksTheRest() throws InterruptedException {
+        first.enqueue(new MockResponse().setHeadersDelay(1500, TimeUnit.MILLISECONDS));
+        second.enqueue(new MockResponse());
+        third.enqueue(new MockResponse().setHeadersDelay(700, TimeUnit.MILLISECONDS));
+        MirrorPool pool = newPool(null);
+        
+        pool.probeAll();
+        
+        assertEquals(mirrors.get(1), pool.getPinned());
+        assertEquals(Arrays.asList(mirrors.get(1), mirrors.get(2), mirrors.get(0)), pool.failoverOrder(3));
+    }
+    
+    @Test
+    public void probeKeepsAPinThatIsOnlySlightlySlower() throws InterruptedException {
+        first.enqueue(new MockResponse().setHeadersDelay(150, TimeUnit.MILLISECONDS));
+        second.enqueue(new MockResponse());
+        third.enqueue(new MockResponse());
+        MirrorPool pool = newPool(null);
+        
+        pool.probeAll();
+        
+        assertEquals(mirrors.get(0), pool.getPinned());
+    }
+    
+    @Test
+    public void failsOverOnServerError() throws IOException {
+        first.enqueue(new MockResponse().setResponseCode(503));
+        second.enqueue(new MockResponse().setBody("ok"));
+        MirrorPool pool = newPool(null);
+        
+        assertEquals("ok", get(pool));
+        assertEquals(mirrors.get(1), pool.getPinned());
+        assertEquals(1, first.getRequestCount());
+    }
+    
+    @Test
+    public void failsOverOnTimeout() throws IOException {
+        first.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        second.enqueue(new MockResponse().setBody("ok"));
+        MirrorPool pool = newPool(null);
+        
+        assertEquals("ok", get(pool));
+        assertNotEquals(mirrors.get(0), pool.getPinned());
+    }
+    
+    @Test
+    public void failedMirrorSitsOutTheCooldown() {
+        MirrorPool pool = newPool(null);
+        for (int i = 0; i < 5; i++) {
+            pool.reportSuccess(mirrors.get(0), 10);
+            pool.reportSuccess(mirrors.get(1), 500);
+            pool.reportSuccess(mirrors.get(2), 900);
+        }
+        
+        pool.reportFailure(mirrors.get(0));
+        assertEquals(mirrors.get(1), pool.getPinned());
+        assertEquals(mirrors.get(0), pool.failoverOrder(3).get(2));
+        
+        clock.addAndGet(MirrorPool.FAILURE_COOLDOWN_NANOS + 1);
+        assertEquals(Arrays.asList(mirrors.get(1), mirrors.get(0), mirrors.get(2)), pool.failoverOrder(3));
+    }
+    
+    @Test
+    public void restoresPinAndRankingFromPreferences() throws InterruptedException {
+        InMemoryPreferences preferences = new InMemoryPreferences();
+        first.enqueue(new MockResponse().setHeadersDelay(1500, TimeUnit.MILLISECONDS));
+        second.enqueue(new MockResponse().setHeadersDelay(700, TimeUnit.MILLISECONDS));
+        third.enqueue(new MockResponse());
+        newPool(preferences).probeAll();
+        
+        MirrorPool restored = newPool(preferences);
+        
+        assertEquals(mirrors.get(2), restored.getPinned());
+        assertEquals(Arrays.asList(mirrors.get(2), mirrors.get(1), mirrors.get(0)), restored.failoverOrder(3));
+    }
+    
+    private MirrorPool newPool(InMemoryPreferences preferences) {
+        return new MirrorPool(mirrors, client, preferences, clock::get);
+    }
+    
+    // Requests carry the production host; the interceptor re-targets them
+    private String get(MirrorPool pool) throws IOException {
+        OkHttpClient api = client.newBuilder()
+            .readTimeout(500, TimeUnit.MILLISECONDS)
+            .addInterceptor(new MirrorFailoverInterceptor(pool))
+            .build();
+        Request request = new Request.Builder().url("https://de1.api.radio-browser.info/json/stats").build();
+        try (Response response = api.newCall(request).execute()) {
+            return response.body().string();
+        }
+    }
+}
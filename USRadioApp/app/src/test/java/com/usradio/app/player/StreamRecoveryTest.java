@@ -0,0 +1,336 @@
+package com.usradio.app.player;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Drives StreamRecoveryLoop as RadioPlayer does, with a fake player that opens every endpoint it
+// is switched to over real HTTP: a stream that delivers audio reports READY, one that does not
+// fails. Time is a manual clock, so delays are checked, not slept.
+public class StreamRecoveryTest {
+    
+    // What the fake player holds once a stream has played for a while
+    private static final long FULL_BUFFER_MS = 20_000;
+    
+    private final MockWebServer primary = new MockWebServer();
+    private final MockWebServer alternate = new MockWebServer();
+    private final OkHttpClient client = new OkHttpClient.Builder()
+        .readTimeout(2, TimeUnit.SECONDS)
+        .retryOnConnectionFailure(false)
+        .build();
+    private final ManualTimer timer = new ManualTimer();
+    private final FakePlayer player = new FakePlayer();
+    private final StreamRecoveryLoop loop = new StreamRecoveryLoop(new StreamRecovery(new Random(1)), player, timer);
+    private String primaryUrl;
+    private String alternateUrl;
+    
+    @Before
+    public void setUp() throws IOException {
+        primary.start();
+        alternate.start();
+        primaryUrl = primary.url("/live").toString();
+        alternateUrl = alternate.url("/live").toString();
+        loop.reset(Arrays.asList(primaryUrl, alternateUrl));
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        primary.shutdown();
+        alternate.shutdown();
+    }
+    
+    @Test
+    public void stallAfterAudioReconnectsToSameEndpoint() {
+        primary.enqueue(audio());
+        primary.enqueue(audio());
+        player.switchTo(primaryUrl);
+        
+        loop.watchForStall(true);
+        timer.advance(StreamRecovery.STALL_TIMEOUT_MS - 1);
+        assertEquals(1, primary.getRequestCount());
+        timer.advance(1 + StreamRecovery.MAX_DELAY_MS);
+        
+        assertEquals(Arrays.asList(primaryUrl, primaryUrl), player.tried);
+        assertEquals(0, alternate.getRequestCount());
+        assertEquals(1, loop.getRecoveryCount());
+        assertEquals(1, loop.getRecoveredCount());
+        assertEquals(1, loop.getSourceSwapCount());
+    }
+    
+    @Test
+    public void bufferingBeforeAudioIsNotAStall() {
+        loop.watchForStall(true);
+        timer.advance(10 * StreamRecovery.STALL_TIMEOUT_MS);
+        
+        assertEquals(0, primary.getRequestCount() + alternate.getRequestCount());
+        assertEquals(0, loop.getRecoveryCount());
+    }
+    
+    @Test
+    public void stopCancelsPendingAttempt() {
+        primary.enqueue(audio());
+        primary.enqueue(audio());
+        player.switchTo(primaryUrl);
+        
+        assertTrue(loop.recover());
+        loop.cancel();
+        timer.advance(10 * StreamRecovery.MAX_DELAY_MS);
+        
+        assertEquals(1, primary.getRequestCount());
+        assertEquals(0, loop.getSourceSwapCount());
+    }
+    
+    @Test
+    public void serviceUnavailableFallsBackToAlternate() {
+        primary.enqueue(audio());
+        primary.enqueue(new MockResponse().setResponseCode(503));
+        alternate.enqueue(audio());
+        player.switchTo(primaryUrl);
+        
+        assertTrue(loop.recover());
+        timer.advance(10 * StreamRecovery.MAX_DELAY_MS);
+        
+        assertEquals(Arrays.asList(primaryUrl, primaryUrl, alternateUrl), player.tried);
+        assertEquals(1, alternate.getRequestCount());
+        assertEquals(1, loop.getRecoveredCount());
+        assertEquals(2, loop.getSourceSwapCount());
+        assertNull(player.gaveUp);
+    }
+    
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        primary.setDispatcher(new Dispatcher() {
+            private boolean played;
+            
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (played) {
+                    return new MockResponse().setResponseCode(503);
+                }
+                played = true;
+                return audio();
+            }
+        });
+        alternate.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setResponseCode(503);
+            }
+        });
+        player.switchTo(primaryUrl);
+        
+        loop.watchForStall(true);
+        timer.advance(StreamRecovery.STALL_TIMEOUT_MS + StreamRecovery.MAX_ATTEMPTS * StreamRecovery.MAX_DELAY_MS);
+        
+        // The first play plus MAX_ATTEMPTS reconnects, alternating from the endpoint that played
+        assertEquals(1 + StreamRecovery.MAX_ATTEMPTS, player.tried.size());
+        assertEquals(1 + StreamRecovery.MAX_ATTEMPTS, primary.getRequestCount() + alternate.getRequestCount());
+        assertEquals(primaryUrl, player.tried.get(1));
+        assertEquals(alternateUrl, player.tried.get(2));
+        assertEquals(1, loop.getRecoveryCount());
+        assertEquals(0, loop.getRecoveredCount());
+        assertEquals("HTTP 503", player.gaveUp);
+    }
+    
+    @Test
+    public void onlyAlternatesAreTriedBeforeAnyAudioPlayed() {
+        primary.enqueue(new MockResponse().setResponseCode(503));
+        alternate.enqueue(new MockResponse().setResponseCode(503));
+        
+        player.switchTo(primaryUrl);
+        timer.advance(10 * StreamRecovery.MAX_DELAY_MS);
+        
+        assertEquals(Arrays.asList(primaryUrl, alternateUrl), player.tried);
+        assertEquals(1, primary.getRequestCount());
+        assertEquals(0, loop.getRecoveredCount());
+        assertEquals("HTTP 503", player.gaveUp);
+    }
+    
+    @Test
+    public void loadErrorWithBufferLeftKeepsTheSource() {
+        primary.enqueue(audio());
+        player.switchTo(primaryUrl);
+        
+        player.loading = false;
+        loop.onLoadError();
+        timer.advance(5_000);
+        // The loader reconnected in place and tops the buffer up again
+        player.loading = true;
+        player.aheadMs = FULL_BUFFER_MS;
+        timer.advance(60_000);
+        
+        assertEquals(1, primary.getRequestCount());
+        assertEquals(1, loop.getInPlaceRecoveryCount());
+        assertEquals(0, loop.getSourceSwapCount());
+        assertEquals(0, loop.getRecoveryCount());
+    }
+    
+    @Test
+    public void drainedBufferSwapsTheSource() {
+        primary.enqueue(audio());
+        primary.enqueue(audio());
+        player.switchTo(primaryUrl);
+        
+        player.loading = false;
+        loop.onLoadError();
+        timer.advance(FULL_BUFFER_MS - StreamRecoveryLoop.BUFFER_FLOOR_MS - 1);
+        assertEquals(1, primary.getRequestCount());
+        timer.advance(1 + StreamRecovery.MAX_DELAY_MS);
+        
+        assertEquals(Arrays.asList(primaryUrl, primaryUrl), player.tried);
+        assertEquals(0, loop.getInPlaceRecoveryCount());
+        assertEquals(1, loop.getSourceSwapCount());
+        assertEquals(1, loop.getRecoveredCount());
+    }
+    
+    @Test
+    public void loadErrorOnNearlyEmptyBufferSwapsAtOnce() {
+        primary.enqueue(audio());
+        primary.enqueue(audio());
+        player.switchTo(primaryUrl);
+        
+        player.loading = false;
+        player.aheadMs = StreamRecoveryLoop.BUFFER_FLOOR_MS / 2;
+        loop.onLoadError();
+        timer.advance(StreamRecovery.MAX_DELAY_MS);
+        
+        assertEquals(Arrays.asList(primaryUrl, primaryUrl), player.tried);
+        assertEquals(1, loop.getSourceSwapCount());
+    }
+    
+    @Test
+    public void backoffGrowsWithinEqualJitterBounds() {
+        Random random = new Random(7);
+        for (int attempt = 0; attempt < 10; attempt++) {
+            long cap = Math.min(StreamRecovery.MAX_DELAY_MS, StreamRecovery.BASE_DELAY_MS << attempt);
+            long delay = StreamRecovery.backoffMs(attempt, random);
+            assertTrue(delay + " for attempt " + attempt, delay >= cap / 2 && delay <= cap);
+        }
+    }
+    
+    private static MockResponse audio() {
+        return new MockResponse().setBody(new Buffer().write(new byte[16 * 1024]));
+    }
+    
+    // Opens each endpoint it is switched to and reports back as ExoPlayer's listeners would:
+    // READY once audio arrives, a player error otherwise. The buffer drains while nothing loads.
+    private final class FakePlayer implements StreamRecoveryLoop.Target {
+        final List<String> tried = new ArrayList<>();
+        long aheadMs;
+        boolean loading = true;
+        String gaveUp;
+        
+        @Override
+        public long getBufferedAheadMs() {
+            return aheadMs;
+        }
+        
+        @Override
+        public void switchTo(String endpoint) {
+            tried.add(endpoint);
+            loop.setCurrent(endpoint);
+            String error = open(endpoint);
+            if (error == null) {
+                loading = true;
+                aheadMs = FULL_BUFFER_MS;
+                loop.onReady();
+            } else if (!loop.recover()) {
+                gaveUp = error;
+            }
+        }
+        
+        @Override
+        public void onGiveUp(String error) {
+            gaveUp = error;
+        }
+        
+        void elapse(long ms) {
+            if (!loading) {
+                aheadMs = Math.max(0, aheadMs - ms);
+            }
+        }
+        
+        // Null once audio arrived, else the error
+        private String open(String endpoint) {
+            try (Response response = client.newCall(new Request.Builder().url(endpoint).build()).execute()) {
+                if (!response.isSuccessful()) {
+                    return "HTTP " + response.code();
+                }
+                InputStream in = response.body().byteStream();
+                return in.read(new byte[4096]) > 0 ? null : "No audio";
+            } catch (IOException e) {
+                return e.getMessage();
+            }
+        }
+    }
+    
+    // Runs due tasks in time order as the clock is moved forward
+    private final class ManualTimer implements StreamRecoveryLoop.Timer {
+        private final List<Long> dueAt = new ArrayList<>();
+        private final List<Runnable> tasks = new ArrayList<>();
+        private long now;
+        
+        @Override
+        public long now() {
+            return now;
+        }
+        
+        @Override
+        public void postDelayed(Runnable task, long delayMs) {
+            dueAt.add(now + delayMs);
+            tasks.add(task);
+        }
+        
+        @Override
+        public void cancel(Runnable task) {
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                if (tasks.get(i) == task) {
+                    tasks.remove(i);
+                    dueAt.remove(i);
+                }
+            }
+        }
+        
+        void advance(long ms) {
+            long until = now + ms;
+            while (true) {
+                int next = -1;
+                for (int i = 0; i < tasks.size(); i++) {
+                    if (dueAt.get(i) <= until && (next < 0 || dueAt.get(i) < dueAt.get(next))) {
+                        next = i;
+                    }
+                }
+                if (next < 0) {
+                    break;
+                }
+                moveTo(dueAt.remove(next));
+                tasks.remove(next).run();
+            }
+            moveTo(until);
+        }
+        
+        private void moveTo(long time) {
+            player.elapse(time - now);
+            now = time;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.usradio.app.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.usradio.app.model.CatalogStation;
+import com.usradio.app.model.RadioStation;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class CatalogDiffTest {
+    
+    @Test
+    public void rankShiftOnlyMovesTheRowsBelow() {
+        List<RadioStation> remote = stations("a", "b", "c", "d");
+        List<CatalogStation> stored = rows(remote);
+        // "d" climbs to the top after gaining votes; the others only shift one rank down
+        RadioStation climbed = station("d");
+        climbed.setVotes(1_000);
+        List<RadioStation> refreshed = Arrays.asList(climbed, remote.get(0), remote.get(1), remote.get(2));
+        
+        CatalogDiff diff = CatalogDiff.compute(stored, refreshed);
+        
+        assertEquals(Collections.singletonList("d"), uuids(diff.upserts));
+        assertEquals(0, diff.upserts.get(0).getPosition());
+        assertEquals(Arrays.asList("a", "b", "c"), uuids(diff.moves));
+        assertEquals(Arrays.asList(1, 2, 3), positions(diff.moves));
+        assertTrue(diff.deletedUuids.isEmpty());
+    }
+    
+    @Test
+    public void unchangedCatalogIsEmpty() {
+        List<RadioStation> remote = stations("a", "b", "c");
+        
+        CatalogDiff diff = CatalogDiff.compute(rows(remote), stations("a", "b", "c"));
+        
+        assertTrue(diff.isEmpty());
+        assertEquals(0, diff.size());
+    }
+    
+    @Test
+    public void newAndMissingStationsAreUpsertedAndDeleted() {
+        List<CatalogStation> stored = rows(stations("a", "b", "c"));
+        
+        CatalogDiff diff = CatalogDiff.compute(stored, stations("a", "c", "e"));
+        
+        assertEquals(Collections.singletonList("e"), uuids(diff.upserts));
+        assertEquals(Collections.singletonList("c"), uuids(diff.moves));
+        assertEquals(Collections.singletonList("b"), diff.deletedUuids);
+        assertEquals(3, diff.size());
+    }
+    
+    private static List<RadioStation> stations(String... uuids) {
+        List<RadioStation> stations = new ArrayList<>();
+        for (String uuid : uuids) {
+            stations.add(station(uuid));
+        }
+        return stations;
+    }
+    
+    private static RadioStation station(String uuid) {
+        RadioStation station = new RadioStation();
+        station.setStationUuid(uuid);
+        station.setName("Station " + uuid);
+        station.setUrl("http://example.com/" + uuid);
+        return station;
+    }
+    
+    private static List<CatalogStation> rows(List<RadioStation> stations) {
+        List<CatalogStation> rows = new ArrayList<>();
+        for (int i = 0; i < stations.size(); i++) {
+            rows.add(CatalogStation.from(stations.get(i), i));
+        }
+        return rows;
+    }
+    
+    private static List<String> uuids(List<CatalogStation> rows) {
+        List<String> uuids = new ArrayList<>();
+        for (CatalogStation row : rows) {
+            uuids.add(row.getStationUuid());
+        }
+        return uuids;
+    }
+    
+    private static List<Integer> positions(List<CatalogStation> rows) {
+        List<Integer> positions = new ArrayList<>();
+        for (CatalogStation row : rows) {
+            positions.add(row.getPosition());
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,58 @@
+package com.usradio.app.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class FavoritesIndexTest {
+    
+    @Test
+    public void toggleOffSurvivesConfirmationOfEarlierToggleOn() {
+        FavoritesIndex index = new FavoritesIndex();
+        index.set("a", true);
+        index.set("a", false);
+        // The "on" write lands and a Room snapshot taken before the "off" write still has the station
+        index.confirmWrite("a", true);
+        assertTrue(index.sync(Collections.singleton("a")).isEmpty());
+        assertFalse(index.contains("a"));
+        
+        index.confirmWrite("a", false);
+        index.sync(Collections.<String>emptySet());
+        assertFalse(index.contains("a"));
+    }
+    
+    @Test
+    public void pendingToggleWinsOverStaleSnapshot() {
+        FavoritesIndex index = new FavoritesIndex();
+        index.sync(Arrays.asList("a", "b"));
+        index.set("c", true);
+        index.set("a", false);
+        assertTrue(index.sync(Arrays.asList("a", "b")).isEmpty());
+        assertTrue(index.contains("c"));
+        assertFalse(index.contains("a"));
+        assertEquals(2, index.size());
+    }
+    
+    @Test
+    public void confirmedWriteDefersToLaterSnapshots() {
+        FavoritesIndex index = new FavoritesIndex();
+        index.set("a", true);
+        index.confirmWrite("a", true);
+        // Removed elsewhere, e.g. by an import that replaced the favorites
+        assertEquals(Collections.singleton("a"), index.sync(Collections.<String>emptySet()));
+        assertFalse(index.contains("a"));
+    }
+    
+    @Test
+    public void seedIsIgnoredOnceASnapshotWasApplied() {
+        FavoritesIndex index = new FavoritesIndex();
+        index.sync(Collections.singleton("b"));
+        index.seed(Collections.singleton("a"));
+        assertFalse(index.contains("a"));
+        assertTrue(index.contains("b"));
+    }
+}
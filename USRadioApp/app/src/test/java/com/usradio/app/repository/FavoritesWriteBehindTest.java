@@ -0,0 +1,149 @@
+package com.usradio.app.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.lifecycle.LiveData;
+import com.usradio.app.database.FavoriteDao;
+import com.usradio.app.model.RadioStation;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class FavoritesWriteBehindTest {
+    
+    private final InMemoryFavoriteDao dao = new InMemoryFavoriteDao();
+    private final FavoritesWriteBehind writer = new FavoritesWriteBehind(dao, new FavoritesIndex());
+    
+    @Test
+    public void restarFromFavoritesListKeepsTheFullRow() {
+        dao.insertFavorite(fullRow("a"));
+        RadioStation listed = listRow(dao.rows.get("a"));
+        
+        writer.delete("a");
+        writer.flush();
+        assertFalse(dao.rows.containsKey("a"));
+        writer.insert(listed);
+        writer.flush();
+        
+        RadioStation stored = dao.rows.get("a");
+        assertEquals("Station a", stored.getName());
+        assertEquals("http://a.example.com", stored.getHomepage());
+        assertEquals("USA", stored.getCountry());
+        assertEquals("english", stored.getLanguage());
+        assertEquals(42, stored.getVotes());
+    }
+    
+    @Test
+    public void newFavoriteIsStoredAsGiven() {
+        writer.insert(fullRow("b"));
+        writer.flush();
+        
+        assertTrue(dao.rows.containsKey("b"));
+        assertEquals(42, dao.rows.get("b").getVotes());
+    }
+    
+    private static RadioStation fullRow(String uuid) {
+        RadioStation station = new RadioStation();
+        station.setStationUuid(uuid);
+        station.setName("Station " + uuid);
+        station.setUrl("http://" + uuid + ".example.com/live");
+        station.setHomepage("http://" + uuid + ".example.com");
+        station.setCountry("USA");
+        station.setLanguage("english");
+        station.setVotes(42);
+        return station;
+    }
+    
+    // The columns FavoriteDao.getAllFavorites selects
+    private static RadioStation listRow(RadioStation stored) {
+        RadioStation row = new RadioStation();
+        row.setStationUuid(stored.getStationUuid());
+        row.setName(stored.getName());
+        row.setUrl(stored.getUrl());
+        row.setUrlResolved(stored.getUrlResolved());
+        row.setFavicon(stored.getFavicon());
+        row.setTags(stored.getTags());
+        row.setState(stored.getState());
+        row.setCodec(stored.getCodec());
+        row.setBitrate(stored.getBitrate());
+        return row;
+    }
+    
+    private static final class InMemoryFavoriteDao implements FavoriteDao {
+        final Map<String, RadioStation> rows = new LinkedHashMap<>();
+        
+        @Override
+        public synchronized void insertFavorite(RadioStation station) {
+            rows.put(station.getStationUuid(), station);
+        }
+        
+        @Override
+        public synchronized void insertFavorites(List<RadioStation> stations) {
+            for (RadioStation station : stations) {
+                insertFavorite(station);
+            }
+        }
+        
+        @Override
+        public synchronized void insertFavoritesIfAbsent(List<RadioStation> stations) {
+            for (RadioStation station : stations) {
+                rows.putIfAbsent(station.getStationUuid(), station);
+            }
+        }
+        
+        @Override
+        public synchronized void deleteFavorite(RadioStation station) {
+            rows.remove(station.getStationUuid());
+        }
+        
+        @Override
+        public LiveData<List<RadioStation>> getAllFavorites() {
+            throw new UnsupportedOperationException();
+        }
+        
+        @Override
+        public synchronized List<RadioStation> getAllFavoritesSync() {
+            return new ArrayList<>(rows.values());
+        }
+        
+        @Override
+        public synchronized List<RadioStation> getFavoritesSync(List<String> stationUuids) {
+            List<RadioStation> found = new ArrayList<>();
+            for (String uuid : stationUuids) {
+                if (rows.containsKey(uuid)) {
+                    found.add(rows.get(uuid));
+                }
+            }
+            return found;
+        }
+        
+        @Override
+        public synchronized List<String> getFavoriteUuidsSync() {
+            return new ArrayList<>(rows.keySet());
+        }
+        
+        @Override
+        public synchronized boolean isFavorite(String stationUuid) {
+            return rows.containsKey(stationUuid);
+        }
+        
+        @Override
+        public synchronized void deleteFavoriteById(String stationUuid) {
+            rows.remove(stationUuid);
+        }
+        
+        @Override
+        public synchronized void deleteFavoritesById(List<String> stationUuids) {
+            rows.keySet().removeAll(stationUuids);
+        }
+        
+        @Override
+        public synchronized void deleteAllFavorites() {
+            rows.clear();
+        }
+    }
+}
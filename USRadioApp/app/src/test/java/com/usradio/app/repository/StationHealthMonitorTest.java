@@ -0,0 +1,209 @@
+package com.usradio.app.repository;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.usradio.app.database.StationHealthDao;
+import com.usradio.app.model.RadioStation;
+import com.usradio.app.model.StationHealth;
+import com.usradio.app.task.CancellationToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class StationHealthMonitorTest {
+    
+    private static final long NOW = TimeUnit.DAYS.toMillis(100);
+    private static final double EPSILON = 1e-9;
+    
+    private final MockWebServer server = new MockWebServer();
+    private final FakeHealthDao dao = new FakeHealthDao();
+    private StationHealthMonitor monitor;
+    
+    @Before
+    public void setUp() throws IOException {
+        server.start();
+        monitor = new StationHealthMonitor(new OkHttpClient(), dao, () -> true, () -> NOW);
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+    
+    @Test
+    public void streamThatSendsBytesIsGood() {
+        server.enqueue(new MockResponse().setHeader("Content-Type", "audio/mpeg").setBody("ID3audio"));
+        
+        StationHealthMonitor.ProbeResult result = monitor.probe(server.url("/live").toString());
+        
+        assertEquals(StationHealthMonitor.OUTCOME_GOOD, result.outcome, EPSILON);
+        assertTrue(result.latencyMs >= 0);
+    }
+    
+    @Test
+    public void lateFirstByteIsSlow() {
+        server.enqueue(new MockResponse()
+            .setHeader("Content-Type", "audio/mpeg")
+            .setBody("ID3audio")
+            .setHeadersDelay(StationHealthMonitor.SLOW_FIRST_BYTE_MS + 300, TimeUnit.MILLISECONDS));
+        
+        StationHealthMonitor.ProbeResult result = monitor.probe(server.url("/live").toString());
+        
+        assertEquals(StationHealthMonitor.OUTCOME_SLOW, result.outcome, EPSILON);
+    }
+    
+    @Test
+    public void errorsAndDropsAreDead() {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "audio/mpeg"));
+        
+        assertEquals(StationHealthMonitor.OUTCOME_DEAD, monitor.probe(server.url("/a").toString()).outcome, EPSILON);
+        assertEquals(StationHealthMonitor.OUTCOME_DEAD, monitor.probe(server.url("/b").toString()).outcome, EPSILON);
+        // Headers but no audio
+        assertEquals(StationHealthMonitor.OUTCOME_DEAD, monitor.probe(server.url("/c").toString()).outcome, EPSILON);
+        assertEquals(StationHealthMonitor.OUTCOME_DEAD, monitor.probe("not a url").outcome, EPSILON);
+    }
+    
+    @Test
+    public void playlistIsExpandedBeforeProbing() throws InterruptedException {
+        server.enqueue(new MockResponse()
+            .setHeader("Content-Type", "audio/x-scpls")
+            .setBody("[playlist]\nFile1=" + server.url("/dead") + "\nNumberOfEntries=1\n"));
+        server.enqueue(new MockResponse().setResponseCode(404));
+        
+        StationHealthMonitor.ProbeResult result = monitor.probe(server.url("/station.pls").toString());
+        
+        assertEquals(StationHealthMonitor.OUTCOME_DEAD, result.outcome, EPSILON);
+        assertEquals("/station.pls", server.takeRequest().getPath());
+        assertEquals("/dead", server.takeRequest().getPath());
+    }
+    
+    @Test
+    public void playlistOfALiveStreamIsGood() {
+        server.enqueue(new MockResponse()
+            .setHeader("Content-Type", "audio/x-mpegurl")
+            .setBody("#EXTM3U\n" + server.url("/live") + "\n"));
+        server.enqueue(new MockResponse().setHeader("Content-Type", "audio/mpeg").setBody("ID3audio"));
+        
+        StationHealthMonitor.ProbeResult result = monitor.probe(server.url("/station.m3u").toString());
+        
+        assertEquals(StationHealthMonitor.OUTCOME_GOOD, result.outcome, EPSILON);
+        assertEquals(2, server.getRequestCount());
+    }
+    
+    @Test
+    public void recordWritesTheWholeRunOnce() {
+        StationHealth known = new StationHealth();
+        known.setStationUuid("known");
+        known.setScore(0.5);
+        known.setLastProbedAt(NOW);
+        known.setConsecutiveFailures(2);
+        dao.rows.put("known", known);
+        Map<String, StationHealthMonitor.ProbeResult> results = new HashMap<>();
+        results.put("known", new StationHealthMonitor.ProbeResult(StationHealthMonitor.OUTCOME_GOOD, 120));
+        results.put("new", new StationHealthMonitor.ProbeResult(StationHealthMonitor.OUTCOME_DEAD, -1));
+        
+        monitor.record(results);
+        
+        assertEquals(1, dao.upserts.size());
+        assertEquals(2, dao.upserts.get(0).size());
+        assertEquals(0.75, dao.rows.get("known").getScore(), EPSILON);
+        assertEquals(0, dao.rows.get("known").getConsecutiveFailures());
+        assertEquals(120, dao.rows.get("known").getLastLatencyMs());
+        assertEquals(0.5, dao.rows.get("new").getScore(), EPSILON);
+        assertEquals(1, dao.rows.get("new").getConsecutiveFailures());
+        assertFalse(monitor.isUnhealthy("new"));
+        
+        monitor.record(Collections.singletonMap("new",
+            new StationHealthMonitor.ProbeResult(StationHealthMonitor.OUTCOME_DEAD, -1)));
+        assertTrue(monitor.isUnhealthy("new"));
+    }
+    
+    @Test
+    public void probeRunIsStoredInOneWrite() throws InterruptedException {
+        List<RadioStation> stations = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            server.enqueue(new MockResponse().setHeader("Content-Type", "audio/mpeg").setBody("ID3audio"));
+            RadioStation station = new RadioStation();
+            station.setStationUuid("station-" + i);
+            station.setUrl(server.url("/live/" + i).toString());
+            stations.add(station);
+        }
+        
+        monitor.probeStale(stations, new CancellationToken());
+        
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (dao.upserts.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        Thread.sleep(100);
+        assertEquals(1, dao.upserts.size());
+        assertEquals(5, dao.upserts.get(0).size());
+    }
+    
+    @Test
+    public void updatedScoreMovesHalfwayTowardsTheOutcome() {
+        assertEquals(0.5, StationHealthMonitor.updatedScore(1.0, 0, StationHealthMonitor.OUTCOME_DEAD), EPSILON);
+        assertEquals(0.25, StationHealthMonitor.updatedScore(0.5, 0, StationHealthMonitor.OUTCOME_DEAD), EPSILON);
+        assertEquals(0.8, StationHealthMonitor.updatedScore(1.0, 0, StationHealthMonitor.OUTCOME_SLOW), EPSILON);
+    }
+    
+    @Test
+    public void updatedScoreRelaxesOldFailures() {
+        // Three days is one half-life: a dead station drifts halfway back to healthy before the new probe counts
+        double relaxed = StationHealthMonitor.updatedScore(0.0, TimeUnit.DAYS.toMillis(3), StationHealthMonitor.OUTCOME_DEAD);
+        assertEquals(0.25, relaxed, EPSILON);
+        double fresh = StationHealthMonitor.updatedScore(0.0, 0, StationHealthMonitor.OUTCOME_DEAD);
+        assertEquals(0.0, fresh, EPSILON);
+        assertTrue(StationHealthMonitor.updatedScore(0.0, -5, StationHealthMonitor.OUTCOME_GOOD) <= 0.5);
+    }
+    
+    private static class FakeHealthDao implements StationHealthDao {
+        final Map<String, StationHealth> rows = new HashMap<>();
+        final List<List<StationHealth>> upserts = Collections.synchronizedList(new ArrayList<>());
+        
+        @Override
+        public synchronized StationHealth getHealth(String stationUuid) {
+            return rows.get(stationUuid);
+        }
+        
+        @Override
+        public synchronized List<String> getUnhealthyUuids(double threshold) {
+            List<String> uuids = new ArrayList<>();
+            for (StationHealth health : rows.values()) {
+                if (health.getScore() < threshold) {
+                    uuids.add(health.getStationUuid());
+                }
+            }
+            return uuids;
+        }
+        
+        @Override
+        public synchronized List<String> getProbedSince(long since) {
+            return Collections.emptyList();
+        }
+        
+        @Override
+        public synchronized void upsertHealth(List<StationHealth> health) {
+            for (StationHealth row : health) {
+                rows.put(row.getStationUuid(), row);
+            }
+            upserts.add(new ArrayList<>(health));
+        }
+    }
+}
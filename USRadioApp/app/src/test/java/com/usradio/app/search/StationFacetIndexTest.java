@@ -0,0 +1,67 @@
+package com.usradio.app.search;
+
+import static org.junit.Assert.assertEquals;
+
+import com.usradio.app.model.FacetRow;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class StationFacetIndexTest {
+    
+    private final StationFacetIndex index = StationFacetIndex.build(Arrays.asList(
+        row("a", "jazz,blues", "California", "mp3", 128, 0),
+        row("b", "rock", "Texas", "aac", 64, 1),
+        row("c", "Jazz", "California", "MP3", 320, 2),
+        row("d", "jazz", "Texas", "mp3", 192, 3)));
+    
+    @Test
+    public void selectReturnsMatchingUuidsInCatalogOrder() {
+        FacetFilter filter = FacetFilter.EMPTY
+            .toggle(StationFacetIndex.Facet.TAG, "jazz")
+            .toggle(StationFacetIndex.Facet.BITRATE, "192");
+        
+        assertEquals(Arrays.asList("c", "d"), index.select(filter));
+    }
+    
+    @Test
+    public void valuesOfOneFacetAreAlternatives() {
+        FacetFilter filter = FacetFilter.EMPTY
+            .toggle(StationFacetIndex.Facet.STATE, "California")
+            .toggle(StationFacetIndex.Facet.STATE, "Texas")
+            .toggle(StationFacetIndex.Facet.CODEC, "MP3");
+        
+        assertEquals(Arrays.asList("a", "c", "d"), index.select(filter));
+    }
+    
+    @Test
+    public void countsApplyTheOtherFacetsOnly() {
+        FacetFilter filter = FacetFilter.EMPTY.toggle(StationFacetIndex.Facet.STATE, "Texas");
+        
+        List<StationFacetIndex.FacetCount> counts = index.counts(filter, 8);
+        
+        assertEquals(2, count(counts, StationFacetIndex.Facet.STATE, "California"));
+        assertEquals(2, count(counts, StationFacetIndex.Facet.STATE, "Texas"));
+        assertEquals(1, count(counts, StationFacetIndex.Facet.TAG, "jazz"));
+    }
+    
+    private static int count(List<StationFacetIndex.FacetCount> counts, StationFacetIndex.Facet facet, String value) {
+        for (StationFacetIndex.FacetCount count : counts) {
+            if (count.facet == facet && count.value.equals(value)) {
+                return count.count;
+            }
+        }
+        return -1;
+    }
+    
+    private static FacetRow row(String uuid, String tags, String state, String codec, int bitrate, int position) {
+        FacetRow row = new FacetRow();
+        row.setStationUuid(uuid);
+        row.setTags(tags);
+        row.setState(state);
+        row.setCodec(codec);
+        row.setBitrate(bitrate);
+        row.setPosition(position);
+        return row;
+    }
+}
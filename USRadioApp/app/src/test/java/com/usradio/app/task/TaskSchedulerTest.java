@@ -0,0 +1,142 @@
+package com.usradio.app.task;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+// Each test has its own scheduler; whether the calling thread counts as the main thread is decided
+// by the test, not by Looper
+public class TaskSchedulerTest {
+    
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile Thread mainThread;
+    private final TaskScheduler scheduler = new TaskScheduler(() -> Thread.currentThread() != mainThread);
+    
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+    
+    @Test
+    public void fullLaneDoesNotHoldUpDelayedTasksForOtherLanes() throws InterruptedException {
+        fill(TaskScheduler.Priority.BACKGROUND);
+        CountDownLatch background = new CountDownLatch(1);
+        CountDownLatch search = new CountDownLatch(1);
+        scheduler.schedule(scheduler.executor(TaskScheduler.Priority.BACKGROUND), background::countDown, 0);
+        scheduler.schedule(scheduler.serial(TaskScheduler.Priority.UI_CRITICAL), search::countDown, 10);
+        
+        assertTrue(search.await(2, TimeUnit.SECONDS));
+        assertEquals(1, background.getCount());
+        
+        release.countDown();
+        assertTrue(background.await(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void taskRefusedByFullLaneRunsOnceThereIsRoom() throws InterruptedException {
+        fill(TaskScheduler.Priority.BACKGROUND);
+        Executor serial = scheduler.serial(TaskScheduler.Priority.BACKGROUND);
+        CountDownLatch ran = new CountDownLatch(1);
+        // Accepted into the serial backlog, then refused by the lane with nothing of its own running
+        scheduler.schedule(serial, ran::countDown, 0);
+        
+        assertFalse(ran.await(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void taskRefusedOnMainThreadRunsOnceThereIsRoom() throws InterruptedException {
+        fill(TaskScheduler.Priority.BACKGROUND);
+        Executor serial = scheduler.serial(TaskScheduler.Priority.BACKGROUND);
+        CountDownLatch ran = new CountDownLatch(1);
+        Thread main = new Thread(() -> serial.execute(ran::countDown));
+        mainThread = main;
+        main.start();
+        // Returns at once instead of waiting for room
+        main.join(2_000);
+        assertFalse(main.isAlive());
+        
+        assertFalse(ran.await(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+    }
+    
+    @Test
+    public void workerThreadWaitsForRoom() throws InterruptedException {
+        fill(TaskScheduler.Priority.BACKGROUND);
+        Executor lane = scheduler.executor(TaskScheduler.Priority.BACKGROUND);
+        CountDownLatch ran = new CountDownLatch(1);
+        Thread worker = new Thread(() -> lane.execute(ran::countDown));
+        worker.start();
+        
+        worker.join(200);
+        assertTrue(worker.isAlive());
+        assertEquals(Thread.State.WAITING, worker.getState());
+        
+        release.countDown();
+        worker.join(5_000);
+        assertFalse(worker.isAlive());
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertEquals(0, scheduler.getStats(TaskScheduler.Priority.BACKGROUND).rejected);
+    }
+    
+    // Both workers finish a limited task into a full queue; if they waited for room, nothing would take
+    // the queued tasks and the lane would stall for good
+    @Test
+    public void laneWorkersDoNotWaitOnTheirOwnLane() throws InterruptedException {
+        TaskScheduler.Priority priority = TaskScheduler.Priority.UI_CRITICAL;
+        Executor limited = scheduler.limited(priority, priority.threads);
+        CountDownLatch started = new CountDownLatch(priority.threads);
+        for (int i = 0; i < priority.threads; i++) {
+            limited.execute(() -> {
+                started.countDown();
+                await(release);
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Executor lane = scheduler.executor(priority);
+        CountDownLatch queued = new CountDownLatch(priority.queueCapacity);
+        for (int i = 0; i < priority.queueCapacity; i++) {
+            lane.execute(queued::countDown);
+        }
+        CountDownLatch backlog = new CountDownLatch(priority.threads);
+        for (int i = 0; i < priority.threads; i++) {
+            limited.execute(backlog::countDown);
+        }
+        
+        release.countDown();
+        assertTrue(queued.await(5, TimeUnit.SECONDS));
+        assertTrue(backlog.await(5, TimeUnit.SECONDS));
+    }
+    
+    // Occupies every thread and queue slot of the lane until release
+    private void fill(TaskScheduler.Priority priority) throws InterruptedException {
+        Executor lane = scheduler.executor(priority);
+        CountDownLatch started = new CountDownLatch(priority.threads);
+        for (int i = 0; i < priority.threads; i++) {
+            lane.execute(() -> {
+                started.countDown();
+                await(release);
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < priority.queueCapacity; i++) {
+            lane.execute(() -> await(release));
+        }
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
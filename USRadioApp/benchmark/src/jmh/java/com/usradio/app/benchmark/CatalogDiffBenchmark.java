@@ -0,0 +1,61 @@
+package com.usradio.app.benchmark;
+
+import com.usradio.app.model.CatalogStation;
+import com.usradio.app.model.RadioStation;
+import com.usradio.app.repository.CatalogDiff;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Diffing a refreshed catalog against the stored rows, as done on every launch.
+// The refreshed copy has a few percent of edits, removals, additions and vote reorders.
+@State(Scope.Benchmark)
+public class CatalogDiffBenchmark {
+    
+    @Param({"1000", "10000", "50000"})
+    public int stations;
+    
+    private List<CatalogStation> stored;
+    private List<RadioStation> remote;
+    
+    @Setup
+    public void setUp() throws IOException {
+        List<RadioStation> catalog = Fixtures.stations(stations);
+        stored = new ArrayList<>(catalog.size());
+        for (int i = 0; i < catalog.size(); i++) {
+            stored.add(CatalogStation.from(catalog.get(i), i));
+        }
+        
+        // A second decode gives independent objects with equal content
+        List<RadioStation> refreshed = Fixtures.stations(stations);
+        remote = new ArrayList<>(refreshed.size());
+        for (int i = 0; i < refreshed.size(); i++) {
+            RadioStation station = refreshed.get(i);
+            if (i % 100 == 7) {
+                continue;
+            }
+            if (i % 50 == 3) {
+                station.setName(station.getName() + " HD");
+            }
+            remote.add(station);
+        }
+        // A swapped pair shifts two positions, and a new station enters in the middle
+        for (int i = 10; i + 1 < remote.size(); i += 200) {
+            remote.set(i, remote.set(i + 1, remote.get(i)));
+        }
+        RadioStation added = new RadioStation();
+        added.setStationUuid("00000000-0000-0000-0000-000000000001");
+        added.setName("New Station");
+        remote.add(remote.size() / 2, added);
+    }
+    
+    @Benchmark
+    public CatalogDiff diff() {
+        return CatalogDiff.compute(stored, remote);
+    }
+}
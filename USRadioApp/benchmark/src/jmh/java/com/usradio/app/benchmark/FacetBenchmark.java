@@ -0,0 +1,56 @@
+package com.usradio.app.benchmark;
+
+import com.usradio.app.model.FacetRow;
+import com.usradio.app.model.RadioStation;
+import com.usradio.app.search.FacetFilter;
+import com.usradio.app.search.StationFacetIndex;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// One chip tap: the combined filter plus the counts of every chip, and building the facets from a fresh catalog
+@State(Scope.Benchmark)
+public class FacetBenchmark {
+    
+    @Param({"1000", "10000", "50000"})
+    public int stations;
+    
+    // The facet columns, as the repository reads them
+    private List<FacetRow> catalog;
+    private StationFacetIndex index;
+    // jazz AND California AND >= 128 kbps
+    private final FacetFilter filter = FacetFilter.EMPTY
+        .toggle(StationFacetIndex.Facet.TAG, "jazz")
+        .toggle(StationFacetIndex.Facet.STATE, "California")
+        .toggle(StationFacetIndex.Facet.BITRATE, "128");
+    
+    @Setup
+    public void setUp() throws IOException {
+        List<RadioStation> decoded = Fixtures.stations(stations);
+        catalog = new ArrayList<>(decoded.size());
+        for (int i = 0; i < decoded.size(); i++) {
+            catalog.add(FacetRow.of(decoded.get(i), i));
+        }
+        index = StationFacetIndex.build(catalog);
+    }
+    
+    @Benchmark
+    public List<String> select() {
+        return index.select(filter);
+    }
+    
+    @Benchmark
+    public List<StationFacetIndex.FacetCount> counts() {
+        return index.counts(filter, 8);
+    }
+    
+    @Benchmark
+    public StationFacetIndex build() {
+        return StationFacetIndex.build(catalog);
+    }
+}
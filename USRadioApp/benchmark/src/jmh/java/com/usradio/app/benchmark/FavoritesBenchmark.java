@@ -0,0 +1,75 @@
+package com.usradio.app.benchmark;
+
+import com.usradio.app.model.RadioStation;
+import com.usradio.app.repository.FavoritesIndex;
+import com.usradio.app.search.StationSearchIndex;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Merging a new favorites snapshot from the database into the in-memory indices, as done
+// on every emission of the favorites table. Alternates between two snapshots that differ
+// by a handful of stations, like a user toggling stars.
+@State(Scope.Benchmark)
+public class FavoritesBenchmark {
+    
+    @Param({"1000", "10000", "50000"})
+    public int stations;
+    
+    // One station in FAVORITE_STRIDE is a favorite
+    private static final int FAVORITE_STRIDE = 20;
+    private static final int TOGGLED = 5;
+    
+    private final List<List<RadioStation>> snapshots = new ArrayList<>();
+    private final List<List<String>> snapshotUuids = new ArrayList<>();
+    private FavoritesIndex favoritesIndex;
+    private StationSearchIndex searchIndex;
+    private int next;
+    
+    @Setup
+    public void setUp() throws IOException {
+        List<RadioStation> catalog = Fixtures.stations(stations);
+        List<RadioStation> base = new ArrayList<>();
+        for (int i = 0; i < catalog.size(); i += FAVORITE_STRIDE) {
+            base.add(catalog.get(i));
+        }
+        List<RadioStation> toggled = new ArrayList<>(base.subList(TOGGLED, base.size()));
+        for (int i = 0; i < TOGGLED; i++) {
+            toggled.add(catalog.get(i * FAVORITE_STRIDE + 1));
+        }
+        snapshots.add(base);
+        snapshots.add(toggled);
+        for (List<RadioStation> snapshot : snapshots) {
+            List<String> uuids = new ArrayList<>(snapshot.size());
+            for (RadioStation station : snapshot) {
+                uuids.add(station.getStationUuid());
+            }
+            snapshotUuids.add(uuids);
+        }
+        
+        favoritesIndex = new FavoritesIndex();
+        favoritesIndex.sync(snapshotUuids.get(0));
+        searchIndex = new StationSearchIndex();
+        searchIndex.updateCatalog(catalog);
+        searchIndex.updateFavorites(base);
+    }
+    
+    @Benchmark
+    public Set<String> syncFavoritesIndex() {
+        next ^= 1;
+        return favoritesIndex.sync(snapshotUuids.get(next));
+    }
+    
+    @Benchmark
+    public StationSearchIndex updateSearchFavorites() {
+        next ^= 1;
+        searchIndex.updateFavorites(snapshots.get(next));
+        return searchIndex;
+    }
+}
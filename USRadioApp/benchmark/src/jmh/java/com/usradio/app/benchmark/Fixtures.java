@@ -0,0 +1,105 @@
+package com.usradio.app.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.usradio.app.api.StationStreamParser;
+import com.usradio.app.model.RadioStation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Station catalogs for the benchmarks. 1k stations are checked in as radio-browser shaped JSON;
+// the 10k and 50k catalogs are expanded from them deterministically, so every run and every
+// commit measures the same data.
+final class Fixtures {
+    
+    static final String BASE_FIXTURE = "/stations-1k.json";
+    static final int BASE_SIZE = 1000;
+    
+    private Fixtures() {}
+    
+    static byte[] json(int stations) throws IOException {
+        byte[] base = readResource(BASE_FIXTURE);
+        if (stations == BASE_SIZE) {
+            return base;
+        }
+        if (stations % BASE_SIZE != 0) {
+            throw new IllegalArgumentException("Fixture sizes are multiples of " + BASE_SIZE);
+        }
+        JsonArray source = new JsonParser().parse(new String(base, StandardCharsets.UTF_8)).getAsJsonArray();
+        List<JsonObject> expanded = new ArrayList<>(stations);
+        // Copies are interleaved so the vote ordering of the catalog is kept
+        for (JsonElement element : source) {
+            for (int copy = 0; copy < stations / BASE_SIZE; copy++) {
+                expanded.add(variant(element.getAsJsonObject(), copy));
+            }
+        }
+        JsonArray array = new JsonArray();
+        for (JsonObject station : expanded) {
+            array.add(station);
+        }
+        return array.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    static List<RadioStation> stations(int stations) throws IOException {
+        return StationStreamParser.readAll(reader(json(stations)));
+    }
+    
+    static Reader reader(byte[] json) {
+        return new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8);
+    }
+    
+    // Copy 0 is the original; later copies get their own UUID, call sign and stream host
+    private static JsonObject variant(JsonObject station, int copy) {
+        if (copy == 0) {
+            return station;
+        }
+        JsonObject variant = station.deepCopy();
+        String uuid = station.get("stationuuid").getAsString();
+        variant.addProperty("stationuuid",
+            UUID.nameUUIDFromBytes((uuid + "#" + copy).getBytes(StandardCharsets.UTF_8)).toString());
+        String name = station.get("name").getAsString();
+        String callSign = callSign(name, copy);
+        variant.addProperty("name", callSign + name.substring(Math.min(4, name.length())));
+        variant.addProperty("url", station.get("url").getAsString().replace("://", "://" + callSign.toLowerCase() + "."));
+        variant.addProperty("url_resolved",
+            station.get("url_resolved").getAsString().replace("://", "://" + callSign.toLowerCase() + "."));
+        variant.addProperty("votes", Math.max(0, station.get("votes").getAsInt() - copy));
+        return variant;
+    }
+    
+    private static String callSign(String name, int copy) {
+        StringBuilder sign = new StringBuilder(4);
+        sign.append(name.isEmpty() ? 'K' : name.charAt(0));
+        int seed = name.hashCode() * 31 + copy;
+        for (int i = 0; i < 3; i++) {
+            sign.append((char) ('A' + Math.floorMod(seed, 26)));
+            seed = seed * 1103515245 + 12345;
+        }
+        return sign.toString();
+    }
+    
+    private static byte[] readResource(String name) throws IOException {
+        try (InputStream in = Fixtures.class.getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.usradio.app.benchmark;
+
+import com.usradio.app.api.StationStreamParser;
+import com.usradio.app.model.RadioStation;
+import java.io.IOException;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Decoding a station list response with the app's reflection-free adapter
+@State(Scope.Benchmark)
+public class JsonDecodeBenchmark {
+    
+    @Param({"1000", "10000", "50000"})
+    public int stations;
+    
+    private byte[] json;
+    
+    @Setup
+    public void setUp() throws IOException {
+        json = Fixtures.json(stations);
+    }
+    
+    @Benchmark
+    public List<RadioStation> readAll() throws IOException {
+        return StationStreamParser.readAll(Fixtures.reader(json));
+    }
+    
+    // The streaming path used for the catalog refresh
+    @Benchmark
+    public int parseInBatches(Blackhole blackhole) throws IOException {
+        return StationStreamParser.parse(Fixtures.reader(json), 50, blackhole::consume);
+    }
+}
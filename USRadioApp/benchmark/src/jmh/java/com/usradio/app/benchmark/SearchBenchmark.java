@@ -0,0 +1,50 @@
+package com.usradio.app.benchmark;
+
+import com.usradio.app.model.RadioStation;
+import com.usradio.app.model.Station;
+import com.usradio.app.search.StationSearchIndex;
+import java.io.IOException;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Search-as-you-type over the n-gram index, and building that index from a fresh catalog
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+    
+    @Param({"1000", "10000", "50000"})
+    public int stations;
+    
+    private List<RadioStation> catalog;
+    private StationSearchIndex index;
+    
+    @Setup
+    public void setUp() throws IOException {
+        catalog = Fixtures.stations(stations);
+        index = new StationSearchIndex();
+        index.updateCatalog(catalog);
+    }
+    
+    // Only search varies with the query, so building the index is not repeated per query
+    @State(Scope.Benchmark)
+    public static class Query {
+        // A broad two-letter prefix, a genre tag and a multi-word state name
+        @Param({"ne", "jazz", "new york"})
+        public String text;
+    }
+    
+    @Benchmark
+    public List<Station> search(Query query) {
+        return index.search(query.text, false);
+    }
+    
+    @Benchmark
+    public StationSearchIndex buildIndex() {
+        StationSearchIndex fresh = new StationSearchIndex();
+        fresh.updateCatalog(catalog);
+        return fresh;
+    }
+}
@@ -0,0 +1,85 @@
+package com.usradio.app.benchmark;
+
+import static org.junit.Assert.assertTrue;
+
+import com.usradio.app.api.StationStreamParser;
+import com.usradio.app.model.CompactCatalog;
+import com.usradio.app.model.RadioStation;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+// Retained heap per 10k stations, decoded objects against the compact catalog. JMH only reports
+// what an operation allocates, not what stays reachable afterwards, so this measures the live heap
+// around a few retained copies of each representation.
+public class CatalogFootprintTest {
+    
+    private static final int STATIONS = 10_000;
+    // Copies held at once; averaging over several keeps GC noise out of the figure
+    private static final int COPIES = 5;
+    
+    private interface Representation {
+        Object build(List<RadioStation> decoded);
+    }
+    
+    private static byte[] json;
+    private static long stationList;
+    
+    @BeforeClass
+    public static void measureStationList() throws IOException {
+        json = Fixtures.json(STATIONS);
+        stationList = retainedPerCopy("RadioStation list", decoded -> decoded);
+    }
+    
+    @Test
+    public void compactCatalogIsSmallerThanStationList() throws IOException {
+        long compact = retainedPerCopy("CompactCatalog", CompactCatalog::of);
+        assertTrue(compact + " >= " + stationList, compact < stationList);
+    }
+    
+    // What the search index holds once it has taken every row
+    @Test
+    public void compactCatalogWithEveryRowIsSmallerThanStationList() throws IOException {
+        long withRows = retainedPerCopy("CompactCatalog + rows", decoded -> {
+            CompactCatalog catalog = CompactCatalog.of(decoded);
+            for (int i = 0; i < catalog.size(); i++) {
+                catalog.get(i);
+            }
+            return catalog;
+        });
+        assertTrue(withRows + " >= " + stationList, withRows < stationList);
+    }
+    
+    private static long retainedPerCopy(String name, Representation representation) throws IOException {
+        // Warms up the decoder, so its one-off class and buffer setup is not counted
+        representation.build(Fixtures.stations(STATIONS));
+        List<Object> retained = new ArrayList<>(COPIES);
+        long before = usedHeap();
+        for (int i = 0; i < COPIES; i++) {
+            // Every copy is decoded on its own, so no strings are shared between copies
+            retained.add(representation.build(StationStreamParser.readAll(Fixtures.reader(json))));
+        }
+        long after = usedHeap();
+        // Reading the list here also keeps the copies reachable until after the measurement
+        long perCopy = (after - before) / retained.size();
+        System.out.println(String.format(Locale.US, "%-24s %,12d bytes per %,d stations (%,d bytes/station)",
+            name, perCopy, STATIONS, perCopy / STATIONS));
+        return perCopy;
+    }
+    
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        // A single System.gc() may leave garbage behind, so the lowest of several readings counts
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, memory.getHeapMemoryUsage().getUsed());
+        }
+        return used;
+    }
+}